@@ -0,0 +1,75 @@
+package com.example.ledger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What a running audit costs the writers: random transfers alone, and the same transfers with
+ * one thread computing {@link Ledger#totalBalance()} back to back. Compare the transfer scores of
+ * the two groups. The audit's own score is how long a consistent total takes over
+ * {@value #ACCOUNTS} accounts.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class AuditBenchmark {
+
+    private static final int ACCOUNTS = 100_000;
+
+    private Ledger ledger;
+    private int[] handles;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        ledger = new Ledger();
+        handles = new int[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            handles[i] = ledger.open("acc-" + i, 1_000_000);
+        }
+    }
+
+    @Benchmark
+    @Group("unaudited")
+    @GroupThreads(4)
+    public void transfer() {
+        randomTransfer();
+    }
+
+    @Benchmark
+    @Group("audited")
+    @GroupThreads(4)
+    public void auditedTransfer() {
+        randomTransfer();
+    }
+
+    @Benchmark
+    @Group("audited")
+    @GroupThreads(1)
+    public long audit() {
+        return ledger.totalBalance();
+    }
+
+    private void randomTransfer() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(ACCOUNTS);
+        int to = (from + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+        ledger.transfer(handles[from], handles[to], 1);
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.ledger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Payroll fan-out from one account to {@code payees} others: one {@link Ledger#applyBatch} versus
+ * one {@link Ledger#transfer} per payee, which re-locks the source every time and is not atomic.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class BatchSettlementBenchmark {
+
+    @Param({"5000"})
+    public int payees;
+
+    private Ledger ledger;
+    private List<Leg> legs;
+
+    @Setup
+    public void setUp() {
+        ledger = new Ledger();
+        ledger.open("payroll", Long.MAX_VALUE / 2);
+        legs = new ArrayList<>(payees);
+        for (int i = 0; i < payees; i++) {
+            String payee = "emp-" + i;
+            ledger.open(payee, 0);
+            legs.add(new Leg("payroll", payee, 1));
+        }
+    }
+
+    @Benchmark
+    public void applyBatch() {
+        ledger.applyBatch(legs);
+    }
+
+    @Benchmark
+    public void transferPerLeg() {
+        for (Leg leg : legs) {
+            ledger.transfer(leg.fromId(), leg.toId(), leg.amount());
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.ledger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The hot-account workload of {@link HotAccountDepositBenchmark}, blocking against combined. Each
+ * invocation makes {@value #PER_INVOCATION} deposits. The async variant issues them all before
+ * waiting, which is how a caller gets work into another thread's batch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(Threads.MAX)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CombiningBenchmark {
+
+    private static final String MERCHANT = "merchant";
+    private static final int PER_INVOCATION = 16;
+
+    private Ledger blockingLedger;
+    private AsyncLedger asyncLedger;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        blockingLedger = new Ledger();
+        blockingLedger.open(MERCHANT, 0);
+        Ledger combined = new Ledger();
+        combined.open(MERCHANT, 0);
+        asyncLedger = new AsyncLedger(combined);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PER_INVOCATION)
+    public void blockingDeposit() {
+        for (int i = 0; i < PER_INVOCATION; i++) {
+            blockingLedger.deposit(MERCHANT, 1);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PER_INVOCATION)
+    public void combinedDeposit() {
+        CompletableFuture<?>[] pending = new CompletableFuture<?>[PER_INVOCATION];
+        for (int i = 0; i < PER_INVOCATION; i++) {
+            pending[i] = asyncLedger.deposit(MERCHANT, 1);
+        }
+        CompletableFuture.allOf(pending).join();
+    }
+}
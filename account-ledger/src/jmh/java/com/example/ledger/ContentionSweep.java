@@ -0,0 +1,68 @@
+package com.example.ledger;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs {@link LedgerContentionBenchmark} at 1, 2, 4, ... threads up to the core count, first on
+ * JMH's usual platform threads and then, on JDK 21 or later, on virtual threads. Each run uses
+ * the GC profiler, so besides ops/s the JSON carries {@code gc.alloc.rate} and
+ * {@code gc.alloc.rate.norm} (bytes per operation). Each run writes
+ * {@code <executor>-t<threads>.json} into the directory given as the first argument.
+ */
+public final class ContentionSweep {
+
+    // jvmArgsAppend here replaces the one on @Fork, so the heap setting is repeated
+    private static final String HEAP = "-Xmx4g";
+    // JMH's executor switch; VIRTUAL_TPE runs each benchmark thread as a virtual thread
+    private static final String VIRTUAL_EXECUTOR = "-Djmh.executor=VIRTUAL_TPE";
+
+    private ContentionSweep() {
+    }
+
+    public static void main(String[] args) throws IOException, RunnerException {
+        Path output = Path.of(args.length > 0 ? args[0] : "build/reports/jmh/contention");
+        Files.createDirectories(output);
+        boolean virtualThreads = Runtime.version().feature() >= 21;
+        if (!virtualThreads) {
+            System.out.println("JDK " + Runtime.version().feature() + ": skipping the virtual-thread runs");
+        }
+        for (int threads : threadCounts(Runtime.getRuntime().availableProcessors())) {
+            run(output.resolve("platform-t" + threads + ".json"), threads, HEAP);
+            if (virtualThreads) {
+                run(output.resolve("virtual-t" + threads + ".json"), threads, HEAP, VIRTUAL_EXECUTOR);
+            }
+        }
+    }
+
+    private static void run(Path result, int threads, String... jvmArgs) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(LedgerContentionBenchmark.class.getName())
+                .threads(threads)
+                .jvmArgsAppend(jvmArgs)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(result.toString())
+                .build();
+        new Runner(options).run();
+    }
+
+    static List<Integer> threadCounts(int cores) {
+        List<Integer> counts = new ArrayList<>();
+        for (int threads = 1; threads < cores; threads *= 2) {
+            counts.add(threads);
+        }
+        counts.add(cores);
+        return counts;
+    }
+}
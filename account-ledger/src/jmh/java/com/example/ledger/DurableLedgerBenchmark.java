@@ -0,0 +1,77 @@
+package com.example.ledger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Random transfers among 64 accounts from every core (the LedgerConcurrencyTest workload), in
+ * memory versus each write-ahead log policy. BATCHED is the one to compare with IN_MEMORY: every
+ * acknowledged transfer is fsynced, but the fsyncs are shared.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(Threads.MAX)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DurableLedgerBenchmark {
+
+    private static final int ACCOUNTS = 64;
+
+    @Param({"IN_MEMORY", "PER_OP", "BATCHED", "ASYNC"})
+    public String mode;
+
+    private Ledger ledger;
+    private Path directory;
+
+    @Setup
+    public void setUp() throws IOException {
+        if (mode.equals("IN_MEMORY")) {
+            ledger = new Ledger();
+        } else {
+            directory = Files.createTempDirectory("ledger-wal-bench");
+            ledger = Ledger.durable(directory, Durability.valueOf(mode));
+        }
+        for (int i = 0; i < ACCOUNTS; i++) {
+            ledger.open("acc-" + i, Long.MAX_VALUE / 2);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        ledger.close();
+        if (directory != null) {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    @Benchmark
+    public void transfer() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(ACCOUNTS);
+        int to = (from + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+        ledger.transfer("acc-" + from, "acc-" + to, 1);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.ledger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deposits spread uniformly over {@value #ACCOUNTS} accounts, with every account resident against
+ * a budget of one in 64. Under the small budget almost every deposit reloads its account first,
+ * which is the worst case: real traffic mostly hits the accounts that stay resident. The eviction
+ * counters and the store's size are printed after each trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+public class EvictionBenchmark {
+
+    private static final int ACCOUNTS = 1 << 20;
+
+    @Param({"1048576", "16384"})
+    public int maxResidentAccounts;
+
+    private Path directory;
+    private Ledger ledger;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("ledger-eviction-bench");
+        ledger = new Ledger();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            ledger.open("acc-" + i, 1_000);
+        }
+        ledger.evictIdleAccounts(directory, maxResidentAccounts, Duration.ofMillis(10));
+        ledger.evictIdle();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        System.out.println(ledger.evictionStats());
+        ledger.close();
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public void deposit() {
+        ledger.deposit(ThreadLocalRandom.current().nextInt(ACCOUNTS), 1);
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.ledger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-operation cost of addressing accounts by id versus by handle, single-threaded so only the
+ * lookup and lock-ordering work differs. Ids are long and share a prefix, as real account
+ * numbers do, which is the bad case for {@code equals} and {@code compareTo}. The ids passed in
+ * are copies of the stored keys, as ids parsed from a request would be, so every map hit pays a
+ * full {@code equals} rather than an identity match.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class HandleLookupBenchmark {
+
+    private static final int ACCOUNTS = 1 << 16;
+
+    private Ledger ledger;
+    private String[] ids;
+    private int[] handles;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        ledger = new Ledger();
+        ids = new String[ACCOUNTS];
+        handles = new int[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            String id = String.format("GB29-NWBK-6016-1331-%08d", i);
+            handles[i] = ledger.open(id, Long.MAX_VALUE / 2);
+            ids[i] = new String(id.toCharArray());
+        }
+    }
+
+    @Benchmark
+    public long balanceById() {
+        return ledger.balanceOf(ids[nextIndex()]);
+    }
+
+    @Benchmark
+    public long balanceByHandle() {
+        return ledger.balanceOf(handles[nextIndex()]);
+    }
+
+    @Benchmark
+    public void depositById() {
+        ledger.deposit(ids[nextIndex()], 1);
+    }
+
+    @Benchmark
+    public void depositByHandle() {
+        ledger.deposit(handles[nextIndex()], 1);
+    }
+
+    @Benchmark
+    public void transferById() {
+        int from = nextIndex();
+        ledger.transfer(ids[from], ids[(from + 1) & (ACCOUNTS - 1)], 1);
+    }
+
+    @Benchmark
+    public void transferByHandle() {
+        int from = nextIndex();
+        ledger.transfer(handles[from], handles[(from + 1) & (ACCOUNTS - 1)], 1);
+    }
+
+    private int nextIndex() {
+        next = (next + 40_503) & (ACCOUNTS - 1);  // odd stride: visits every account, not cache-friendly
+        return next;
+    }
+}
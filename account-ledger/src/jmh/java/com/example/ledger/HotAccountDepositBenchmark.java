@@ -0,0 +1,74 @@
+package com.example.ledger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every thread deposits into the same merchant account: the lock convoy case. The striped
+ * ledger's merchant takes credits on per-thread stripes, which is what should scale with cores.
+ * Ledgers are rebuilt per iteration so the journal, which grows by one entry per deposit,
+ * stays bounded; short iterations keep it well inside the heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(Threads.MAX)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class HotAccountDepositBenchmark {
+
+    private static final String MERCHANT = "merchant";
+
+    private Ledger lockingLedger;
+    private LockFreeLedger lockFreeLedger;
+    private Ledger stripedLedger;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        lockingLedger = new Ledger();
+        lockingLedger.open(MERCHANT, 0);
+        lockFreeLedger = new LockFreeLedger();
+        lockFreeLedger.open(MERCHANT, 0);
+        stripedLedger = new Ledger();
+        stripedLedger.open(MERCHANT, 0);
+        stripedLedger.stripe(MERCHANT);
+    }
+
+    @Benchmark
+    public void lockingDeposit() {
+        lockingLedger.deposit(MERCHANT, 1);
+    }
+
+    @Benchmark
+    public void lockFreeDeposit() {
+        lockFreeLedger.deposit(MERCHANT, 1);
+    }
+
+    @Benchmark
+    public void stripedDeposit() {
+        stripedLedger.deposit(MERCHANT, 1);
+    }
+
+    @Benchmark
+    public long lockingBalanceOf() {
+        return lockingLedger.balanceOf(MERCHANT);
+    }
+
+    @Benchmark
+    public long lockFreeBalanceOf() {
+        return lockFreeLedger.balanceOf(MERCHANT);
+    }
+}
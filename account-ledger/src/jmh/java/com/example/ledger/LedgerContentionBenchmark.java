@@ -0,0 +1,138 @@
+package com.example.ledger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The four core {@link Ledger} operations under three access patterns:
+ * <ul>
+ *   <li>UNIFORM: every account equally likely, so contention is rare.</li>
+ *   <li>ZIPFIAN: a few hot accounts take most of the traffic (exponent 0.99, as in YCSB).</li>
+ *   <li>PING_PONG: two accounts only, so every operation contends.</li>
+ * </ul>
+ * The thread count is left to the command line, or to {@link ContentionSweep}, which runs the
+ * whole matrix with the GC profiler and writes one JSON file per run. The ledger is rebuilt each
+ * iteration so the journals, which grow with every write, stay bounded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class LedgerContentionBenchmark {
+
+    private static final int ACCOUNTS = 10_000;
+    // entries per account before an iteration starts, so statements have something to read
+    private static final int HISTORY = 32;
+    private static final int ZIPF_SAMPLES = 1 << 20;
+    private static final double ZIPF_EXPONENT = 0.99;
+
+    @Param({"UNIFORM", "ZIPFIAN", "PING_PONG"})
+    public String distribution;
+
+    private Ledger ledger;
+    private String[] ids;
+    private int[] handles;
+    // precomputed Zipfian draws: sampling is one random index, not a search per operation
+    private int[] zipf;
+
+    @Setup(Level.Trial)
+    public void sampleZipf() {
+        double[] cumulative = new double[ACCOUNTS];
+        double sum = 0;
+        for (int rank = 0; rank < ACCOUNTS; rank++) {
+            sum += 1 / Math.pow(rank + 1, ZIPF_EXPONENT);
+            cumulative[rank] = sum;
+        }
+        SplittableRandom random = new SplittableRandom(42);
+        zipf = new int[ZIPF_SAMPLES];
+        for (int i = 0; i < ZIPF_SAMPLES; i++) {
+            double target = random.nextDouble() * sum;
+            int low = 0;
+            int high = ACCOUNTS - 1;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (cumulative[middle] < target) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            zipf[i] = low;
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        ledger = new Ledger();
+        ids = new String[ACCOUNTS];
+        handles = new int[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            ids[i] = "acc-" + i;
+            handles[i] = ledger.open(ids[i], Long.MAX_VALUE / 4);
+            for (int e = 0; e < HISTORY; e++) {
+                ledger.deposit(handles[i], 1);
+            }
+        }
+    }
+
+    /** Per-thread cursor for PING_PONG, which alternates between the two accounts. */
+    @State(Scope.Thread)
+    public static class Turn {
+        boolean flip;
+    }
+
+    @Benchmark
+    public void deposit(Turn turn) {
+        ledger.deposit(handles[pick(turn)], 1);
+    }
+
+    @Benchmark
+    public void withdraw(Turn turn) {
+        ledger.withdraw(handles[pick(turn)], 1);
+    }
+
+    @Benchmark
+    public void transfer(Turn turn) {
+        int from = pick(turn);
+        int to = distribution.equals("PING_PONG") ? 1 - from : pick(turn);
+        if (to == from) {
+            to = (from + 1) % ACCOUNTS;
+        }
+        ledger.transfer(handles[from], handles[to], 1);
+    }
+
+    /** A "recent activity" read: the newest ten entries. */
+    @Benchmark
+    public List<Entry> statement(Turn turn) {
+        return ledger.latestEntries(ids[pick(turn)], 10);
+    }
+
+    private int pick(Turn turn) {
+        switch (distribution) {
+            case "UNIFORM":
+                return ThreadLocalRandom.current().nextInt(ACCOUNTS);
+            case "ZIPFIAN":
+                return zipf[ThreadLocalRandom.current().nextInt(ZIPF_SAMPLES)];
+            default:
+                turn.flip = !turn.flip;
+                return turn.flip ? 1 : 0;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.ledger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Uniform load over {@code ACCOUNTS} accounts from every core, against 1 to 8 shards. Blocking
+ * transfers pay a hand-off and a wake-up per call; pipelined deposits keep {@code PIPELINE}
+ * operations outstanding per thread, which is where throughput should track the shard count.
+ * Compare with {@link DurableLedgerBenchmark}'s IN_MEMORY mode for the lock-based ledger.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(Threads.MAX)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ShardedLedgerBenchmark {
+
+    private static final int ACCOUNTS = 4_096;
+    private static final int PIPELINE = 64;
+
+    @Param({"1", "2", "4", "8"})
+    public int shards;
+
+    private ShardedLedger ledger;
+    private String[] ids;
+
+    @Setup
+    public void setUp() {
+        ledger = new ShardedLedger(shards);
+        ids = new String[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            ids[i] = "acc-" + i;
+            ledger.open(ids[i], Long.MAX_VALUE / 2);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        ledger.close();
+    }
+
+    @Benchmark
+    public void transfer() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(ACCOUNTS);
+        int to = (from + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+        ledger.transfer(ids[from], ids[to], 1);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PIPELINE)
+    public void pipelinedDeposits() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        CompletableFuture<?>[] pending = new CompletableFuture<?>[PIPELINE];
+        for (int i = 0; i < PIPELINE; i++) {
+            pending[i] = ledger.depositAsync(ids[random.nextInt(ACCOUNTS)], 1);
+        }
+        CompletableFuture.allOf(pending).join();
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.ledger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Time to open a ledger with {@code accounts} accounts, each opened and deposited into once, plus a
+ * tail of {@code TAIL} deposits. {@code recoverFromSnapshot} loads a snapshot taken before the
+ * tail and replays only the tail. {@code replayFullLog} replays every record from the start, as
+ * every startup did before snapshots.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+public class StartupBenchmark {
+
+    private static final int TAIL = 100_000;
+
+    @Param({"10000000"})
+    public int accounts;
+
+    private Path withSnapshot;
+    private Path logOnly;
+    private Ledger opened;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        withSnapshot = Files.createTempDirectory("ledger-startup-snapshot");
+        logOnly = Files.createTempDirectory("ledger-startup-log");
+        populate(withSnapshot, true);
+        populate(logOnly, false);
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeOpened() {
+        if (opened != null) {
+            opened.close();
+            opened = null;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        delete(withSnapshot);
+        delete(logOnly);
+    }
+
+    @Benchmark
+    public Ledger recoverFromSnapshot() throws IOException {
+        opened = Ledger.durable(withSnapshot, Durability.ASYNC);
+        return opened;
+    }
+
+    @Benchmark
+    public Ledger replayFullLog() throws IOException {
+        opened = Ledger.durable(logOnly, Durability.ASYNC);
+        return opened;
+    }
+
+    private void populate(Path directory, boolean snapshot) throws IOException {
+        try (Ledger ledger = Ledger.durable(directory, Durability.ASYNC)) {
+            for (int i = 0; i < accounts; i++) {
+                String id = "acc-" + i;
+                ledger.open(id, 1_000);
+                ledger.deposit(id, 1);
+            }
+            if (snapshot) {
+                ledger.snapshot();
+            }
+            for (int i = 0; i < TAIL; i++) {
+                ledger.deposit("acc-" + (i % accounts), 1);
+            }
+        }
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.ledger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading a page of statement from the heap against reading it back from a spilled segment. One
+ * account holds {@value #HISTORY} entries, of which only the newest {@value #RETAINED} stay on the
+ * heap. The cold page starts at a random old sequence, so most reads decode a new chunk, which is
+ * the worst case: a reader paging forwards decodes each chunk once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TieredJournalBenchmark {
+
+    private static final String ACCOUNT = "acc-1";
+    private static final int HISTORY = 1 << 22;
+    private static final int RETAINED = 1 << 14;
+    private static final int PAGE = 100;
+
+    private Path directory;
+    private Ledger ledger;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("ledger-journal-bench");
+        ledger = new Ledger();
+        ledger.open(ACCOUNT, 0);
+        ledger.tierJournals(directory, RETAINED);
+        for (int i = 0; i < HISTORY; i++) {
+            ledger.deposit(ACCOUNT, 1 + (i & 1023));
+        }
+        ledger.awaitJournalSpills();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        ledger.close();
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public List<Entry> hotPage() {
+        int from = HISTORY - RETAINED + ThreadLocalRandom.current().nextInt(RETAINED - PAGE);
+        return List.copyOf(ledger.statement(ACCOUNT, from, PAGE));
+    }
+
+    @Benchmark
+    public List<Entry> coldPage() {
+        int from = ThreadLocalRandom.current().nextInt(HISTORY - 2 * RETAINED);
+        return List.copyOf(ledger.statement(ACCOUNT, from, PAGE));
+    }
+}
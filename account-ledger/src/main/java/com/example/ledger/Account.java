@@ -1,45 +1,256 @@
 package com.example.ledger;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.locks.ReentrantLock;
+
 /**
  * Interview skeleton — handed out as-is at the start. Money is a long in
  * minor units (cents); never a floating-point type.
  */
-public class Account {
+public class Account extends AccountSlot {
+
+    // not part of a Ledger: no handle
+    static final int NO_HANDLE = -1;
+    private static final VarHandle BALANCE;
+    private static final VarHandle WRITE_EPOCH;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            BALANCE = lookup.findVarHandle(Account.class, "balance", long.class);
+            WRITE_EPOCH = lookup.findVarHandle(Account.class, "writeEpoch", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
 
+    private final int handle;
     private final String id;
     private long balance;
-    private final java.util.List<Entry> entries = new java.util.ArrayList<>();
+    private final Journal journal;
+    // an explicit lock rather than the monitor: a batch holds an arbitrary number of these at once,
+    // which nested synchronized blocks can only do by recursing one stack frame per account
+    private final ReentrantLock lock = new ReentrantLock();
+    // LSN of the last write-ahead log record applied to this account; 0 when not durable
+    private long lastLsn;
+    // null unless striped; set once, under the lock, and read without it by crediting threads
+    private volatile CreditStripes stripes;
+    // Audit versioning (see Epochs). Written under the lock, read without it by balanceAsOf:
+    // balance and writeEpoch are published with release stores, priorBalance before writeEpoch.
+    private long openedEpoch;
+    private long writeEpoch;
+    // the balance before the first write of writeEpoch
+    private long priorBalance;
+    // set under the lock when the account is written to a DormantStore; from then on this object is
+    // frozen and callers holding it must look the id up again
+    private boolean evicted;
+    // CLOCK reference bit: set by every lookup, cleared by the eviction sweep
+    private volatile boolean referenced = true;
 
     public Account(String id, long initialBalance) {
+        this(NO_HANDLE, id, initialBalance);
+    }
+
+    Account(int handle, String id, long initialBalance) {
+        this.handle = handle;
         this.id = id;
         this.balance = initialBalance;
+        this.journal = new Journal(initialBalance);
+    }
+
+    // restored from a snapshot: the journal resumes at nextSequence, the history before it is not in memory
+    Account(int handle, String id, long balance, long nextSequence, long lastLsn) {
+        this.handle = handle;
+        this.id = id;
+        this.balance = balance;
+        this.journal = new Journal(balance, nextSequence);
+        this.lastLsn = lastLsn;
     }
 
+    // reloaded from a DormantStore, exactly as it was evicted
+    Account(int handle, String id, long balance, Journal journal, long lastLsn,
+            long openedEpoch, long writeEpoch, long priorBalance) {
+        this.handle = handle;
+        this.id = id;
+        this.balance = balance;
+        this.journal = journal;
+        this.lastLsn = lastLsn;
+        this.openedEpoch = openedEpoch;
+        this.writeEpoch = writeEpoch;
+        this.priorBalance = priorBalance;
+    }
+
+    @Override
     public String id() {
         return id;
     }
 
+    // the Ledger's dense-table index, and its global lock order
+    @Override
+    int handle() {
+        return handle;
+    }
+
+    void lock() {
+        lock.lock();
+    }
+
+    void unlock() {
+        lock.unlock();
+    }
+
+    boolean tryLock() {
+        return lock.tryLock();
+    }
+
+    CreditStripes stripes() {
+        return stripes;
+    }
+
+    // call while holding the lock
+    void enableStriping() {
+        if (stripes == null) {
+            stripes = new CreditStripes();
+        }
+    }
+
+    // call while holding the lock: afterwards balance and journal include every pending striped credit
+    void foldCredits() {
+        CreditStripes pending = stripes;
+        if (pending != null) {
+            pending.foldInto(this);
+        }
+    }
+
     long balance() {
         return balance;
     }
 
     void add(long amount) {
-        balance += amount;
+        BALANCE.setRelease(this, balance + amount);
     }
 
     void subtract(long amount) {
+        requireFunds(amount);
+        BALANCE.setRelease(this, balance - amount);
+    }
+
+    // call while holding the lock, before publishing the account
+    void markOpened(long epoch) {
+        openedEpoch = epoch;
+    }
+
+    @Override
+    long openedEpoch() {
+        return openedEpoch;
+    }
+
+    // call while holding the lock, before the first balance change of a write in this epoch
+    void stamp(long epoch) {
+        if (epoch > writeEpoch) {
+            priorBalance = balance;
+            WRITE_EPOCH.setRelease(this, epoch);
+        }
+    }
+
+    long writeEpoch() {
+        return writeEpoch;
+    }
+
+    long priorBalance() {
+        return priorBalance;
+    }
+
+    // call while holding the lock and every stripe lock: a folded credit that predates writeEpoch
+    // belongs to the prior balance too
+    void addToPrior(long amount) {
+        priorBalance += amount;
+    }
+
+    /**
+     * The balance as of {@code cut}, without the lock, once every write up to {@code cut} has
+     * finished and while none after {@code cut + 1} can start. Pending striped credits are not
+     * included; read a striped account through its stripes.
+     */
+    @Override
+    long balanceAsOf(long cut) {
+        long current = (long) BALANCE.getAcquire(this);
+        // a balance that already includes a later write would show that write's epoch here
+        if ((long) WRITE_EPOCH.getAcquire(this) <= cut) {
+            return current;
+        }
+        return priorBalance;
+    }
+
+    // lets a durable ledger check the guard before logging, so rejected operations never reach the log
+    void requireFunds(long amount) {
         if (balance < amount) {
             throw new IllegalStateException("Insufficient funds on " + id);
         }
-        balance -= amount;
     }
 
-    // call only while holding this account's monitor: entry and balance must agree
-    void record(Entry.Type type, long amount) {
-        entries.add(new Entry(type, amount, balance));
+    // call only while holding this account's lock, right after the balance change it records:
+    // the journal derives the entry's amount from the balance movement
+    void record(Entry.Type type) {
+        if (journal.append(type, balance)) {
+            journal.archive().spillLater(this);
+        }
+    }
+
+    // call while holding the lock; the archive takes the lock itself while it spills
+    void tierJournal(JournalArchive archive) {
+        journal.tier(archive);
+        if (journal.spillableChunks() > 0) {
+            archive.spillLater(this);
+        }
+    }
+
+    Journal journal() {
+        return journal;
+    }
+
+    // call while holding the lock; the returned view stays valid after it is released
+    Journal.View entries() {
+        return journal.view();
+    }
+
+    long nextSequence() {
+        return journal.nextSequence();
+    }
+
+    long lastLsn() {
+        return lastLsn;
+    }
+
+    // call while holding the lock, in the same critical section that applies the logged change
+    void markLogged(long lsn) {
+        lastLsn = lsn;
     }
 
-    java.util.List<Entry> entries() {
-        return java.util.List.copyOf(entries);
+    // call while holding the lock, once the account's state is in the DormantStore
+    void markEvicted() {
+        evicted = true;
+    }
+
+    // call while holding the lock
+    boolean evicted() {
+        return evicted;
+    }
+
+    void markUsed() {
+        // read first: an unconditional write would bounce the cache line between lookups of a hot account
+        if (!referenced) {
+            referenced = true;
+        }
+    }
+
+    // eviction thread only: true if the account was used since the last call
+    boolean clearReferenced() {
+        if (referenced) {
+            referenced = false;
+            return true;
+        }
+        return false;
     }
 }
@@ -0,0 +1,17 @@
+package com.example.ledger;
+
+/**
+ * What {@link Ledger}'s registry holds for an account: the live {@link Account}, or a
+ * {@link DormantAccount} standing in for one that was evicted to disk.
+ */
+abstract class AccountSlot {
+
+    abstract String id();
+
+    abstract int handle();
+
+    abstract long openedEpoch();
+
+    /** As {@link Account#balanceAsOf}. */
+    abstract long balanceAsOf(long cut);
+}
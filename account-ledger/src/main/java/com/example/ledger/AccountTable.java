@@ -0,0 +1,68 @@
+package com.example.ledger;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dense handle-to-account table behind {@link Ledger}'s int handles. Handles are handed out in
+ * order and index fixed-size chunks of one directory, so a lookup is two array loads with no
+ * hashing. Chunks are never moved once allocated. Only the directory is copied when it grows, and
+ * growing is the one step that takes a lock.
+ *
+ * <p>A handle reserved for an open that then fails (a duplicate id) stays empty forever. An
+ * evicted account's slot holds its {@link DormantAccount} until it is reloaded.
+ */
+final class AccountTable {
+
+    private static final int CHUNK_SHIFT = 14;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(AccountSlot[].class);
+
+    private final AtomicInteger nextHandle = new AtomicInteger();
+    private volatile AccountSlot[][] chunks = new AccountSlot[0][];
+
+    int reserve() {
+        int handle = nextHandle.getAndIncrement();
+        if (handle < 0) {
+            throw new IllegalStateException("Account table is full");
+        }
+        return handle;
+    }
+
+    /** Publishes {@code account} under its reserved handle, replacing whatever was there. */
+    void put(AccountSlot account) {
+        int handle = account.handle();
+        AccountSlot[][] directory = chunks;
+        int chunk = handle >>> CHUNK_SHIFT;
+        if (chunk >= directory.length || directory[chunk] == null) {
+            directory = grow(chunk);
+        }
+        SLOT.setRelease(directory[chunk], handle & CHUNK_MASK, account);
+    }
+
+    /** Returns null for a handle that was never published. */
+    AccountSlot get(int handle) {
+        AccountSlot[][] directory = chunks;
+        int chunk = handle >>> CHUNK_SHIFT;
+        if (handle < 0 || chunk >= directory.length) {
+            return null;
+        }
+        AccountSlot[] slots = directory[chunk];
+        return slots == null ? null : (AccountSlot) SLOT.getAcquire(slots, handle & CHUNK_MASK);
+    }
+
+    private synchronized AccountSlot[][] grow(int chunk) {
+        AccountSlot[][] directory = chunks;
+        if (chunk >= directory.length) {
+            directory = Arrays.copyOf(directory, Math.max(chunk + 1, directory.length * 2));
+        }
+        if (directory[chunk] == null) {
+            directory[chunk] = new AccountSlot[CHUNK_SIZE];
+        }
+        chunks = directory;
+        return directory;
+    }
+}
@@ -0,0 +1,274 @@
+package com.example.ledger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * {@link CompletableFuture} facade over a {@link Ledger} that combines operations per account.
+ * Each call queues its request on the account, normally the transfer's source. The caller then
+ * tries to become that account's combiner. The combiner takes the account's lock once and applies
+ * every queued request in one pass, appending all of their journal entries together. It then
+ * waits once for the whole batch to be durable and completes each caller's future with that
+ * caller's own result or failure. A caller that finds a combiner already running returns at once:
+ * its request is in the queue the combiner drains. So a hot account sees one lock hand-off per
+ * batch, where the blocking API needs one per operation.
+ *
+ * <p>The rules are those of {@link Ledger}. Argument errors (non-positive amount, transfer to
+ * self) are thrown at the call. Unknown accounts and insufficient funds fail the future. The
+ * blocking API can be used on the same ledger at the same time.
+ *
+ * <p>A transfer whose target comes later in the lock order is applied inside the batch. One whose
+ * target comes earlier is applied in the batch only if the target's lock is free at that moment;
+ * otherwise it runs after the batch, through {@link Ledger#transfer(int, int, long)}, so that locks
+ * are never taken out of order. Transfers into a striped account always run that way, and so do
+ * those into an account evicted between the lookup and the lock.
+ *
+ * <p>Futures complete on the combining thread, so dependent stages attached without an executor
+ * run there; keep them short or use the {@code *Async} variants.
+ */
+public class AsyncLedger {
+
+    // requests applied under one lock acquisition
+    private static final int BATCH = 256;
+    // requests one caller applies for others before handing the combiner role to the common pool
+    private static final int COMBINE_BUDGET = 4 * BATCH;
+
+    private final Ledger ledger;
+    private final Map<String, Combiner> combiners = new ConcurrentHashMap<>();
+
+    public AsyncLedger(Ledger ledger) {
+        this.ledger = ledger;
+    }
+
+    public CompletableFuture<Void> deposit(String accountId, long amount) {
+        requirePositive(amount);
+        return submit(accountId, Kind.DEPOSIT, Account.NO_HANDLE, amount);
+    }
+
+    public CompletableFuture<Void> withdraw(String accountId, long amount) {
+        requirePositive(amount);
+        return submit(accountId, Kind.WITHDRAWAL, Account.NO_HANDLE, amount);
+    }
+
+    public CompletableFuture<Void> transfer(String fromId, String toId, long amount) {
+        if (fromId.equals(toId)) {
+            throw new IllegalArgumentException("Cannot transfer to the same account: " + fromId);
+        }
+        requirePositive(amount);
+        int to;
+        try {
+            to = ledger.handleOf(toId);
+        } catch (IllegalArgumentException unknown) {
+            return CompletableFuture.failedFuture(unknown);
+        }
+        return submit(fromId, Kind.TRANSFER, to, amount);
+    }
+
+    public CompletableFuture<Long> balanceOf(String accountId) {
+        return submit(accountId, Kind.BALANCE, Account.NO_HANDLE, 0);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> submit(String accountId, Kind kind, int other, long amount) {
+        Combiner combiner = combiners.get(accountId);
+        if (combiner == null) {
+            int handle;
+            try {
+                handle = ledger.handleOf(accountId);
+            } catch (IllegalArgumentException unknown) {
+                return CompletableFuture.failedFuture(unknown);
+            }
+            combiner = combiners.computeIfAbsent(accountId, id -> new Combiner(handle));
+        }
+        Request request = new Request(kind, other, amount);
+        combiner.queue.add(request);
+        combine(combiner);
+        return (CompletableFuture<T>) request.result;
+    }
+
+    private void combine(Combiner combiner) {
+        int applied = 0;
+        // re-checking after the release closes the gap where a request arrives as the combiner leaves
+        while (!combiner.queue.isEmpty() && combiner.active.compareAndSet(false, true)) {
+            try {
+                applied += applyBatch(combiner);
+            } finally {
+                combiner.active.set(false);
+            }
+            if (applied >= COMBINE_BUDGET && !combiner.queue.isEmpty()) {
+                // this caller has served enough others; whoever comes next, or the pool, carries on
+                ForkJoinPool.commonPool().execute(() -> combine(combiner));
+                return;
+            }
+        }
+    }
+
+    // returns how many requests it took off the queue
+    private int applyBatch(Combiner combiner) {
+        // looked up per batch, by handle: the account may have been evicted since the last one
+        Account account = ledger.lockLive(ledger.require(combiner.handle));
+        List<Request> done = new ArrayList<>();
+        List<Request> deferred = new ArrayList<>();
+        long lsn = 0;
+        int taken = 0;
+        long epoch = ledger.enterWrite();
+        try {
+            account.foldCredits();
+            account.stamp(epoch);
+            for (Request request; taken < BATCH && (request = combiner.queue.poll()) != null; taken++) {
+                try {
+                    switch (request.kind) {
+                        case DEPOSIT -> {
+                            lsn = ledger.log(WriteAheadLog.Op.DEPOSIT, account, null, request.amount);
+                            account.add(request.amount);
+                            account.record(Entry.Type.DEPOSIT);
+                        }
+                        case WITHDRAWAL -> {
+                            epoch = foldCredits(account, epoch);
+                            account.requireFunds(request.amount);
+                            lsn = ledger.log(WriteAheadLog.Op.WITHDRAWAL, account, null, request.amount);
+                            account.subtract(request.amount);
+                            account.record(Entry.Type.WITHDRAWAL);
+                        }
+                        case TRANSFER -> {
+                            Account to = ledger.require(request.other);
+                            // a later target may be waited for; an earlier one only tried, or we could deadlock
+                            if (to.stripes() != null) {
+                                deferred.add(request);  // credits to a striped account go through its stripes
+                                continue;
+                            } else if (to.handle() > account.handle()) {
+                                to.lock();
+                            } else if (!to.tryLock()) {
+                                deferred.add(request);
+                                continue;
+                            }
+                            if (to.evicted()) {
+                                to.unlock();
+                                deferred.add(request);  // the blocking path looks it up again
+                                continue;
+                            }
+                            try {
+                                epoch = foldCredits(account, epoch);
+                                account.requireFunds(request.amount);
+                                lsn = ledger.log(WriteAheadLog.Op.TRANSFER, account, to, request.amount);
+                                // the batch's epoch was read before this lock was: the transfer takes its own
+                                long transferEpoch = ledger.enterWrite();
+                                try {
+                                    account.stamp(transferEpoch);
+                                    to.stamp(transferEpoch);
+                                    account.subtract(request.amount);
+                                    to.add(request.amount);
+                                    account.record(Entry.Type.TRANSFER_OUT);
+                                    to.record(Entry.Type.TRANSFER_IN);
+                                } finally {
+                                    ledger.exitWrite(transferEpoch);
+                                }
+                            } finally {
+                                to.unlock();
+                            }
+                        }
+                        case BALANCE -> {
+                            epoch = foldCredits(account, epoch);
+                            request.value = account.balance();
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    request.failure = e;
+                }
+                done.add(request);
+            }
+        } finally {
+            ledger.exitWrite(epoch);
+            account.unlock();
+        }
+
+        // one durability wait for the whole batch, then the futures, all outside the lock
+        RuntimeException commitFailure = null;
+        try {
+            ledger.commit(lsn);
+        } catch (RuntimeException e) {
+            commitFailure = e;
+        }
+        for (Request request : done) {
+            if (request.failure != null) {
+                request.result.completeExceptionally(request.failure);
+            } else if (commitFailure != null && request.kind != Kind.BALANCE) {
+                request.result.completeExceptionally(commitFailure);
+            } else {
+                request.result.complete(request.value);
+            }
+        }
+        for (Request request : deferred) {
+            try {
+                ledger.transfer(account.handle(), request.other, request.amount);
+                request.result.complete(null);
+            } catch (RuntimeException e) {
+                request.result.completeExceptionally(e);
+            }
+        }
+        return taken;
+    }
+
+    // Credits to a striped account reach its stripes without its lock, so during a batch too: debits
+    // and reads fold them in first. The fold may stamp the account with an epoch newer than the batch's,
+    // so the batch moves to a fresh epoch before it. Returns the batch's epoch from here on.
+    private long foldCredits(Account account, long epoch) {
+        if (account.stripes() == null) {
+            return epoch;
+        }
+        ledger.exitWrite(epoch);
+        long next = ledger.enterWrite();
+        account.foldCredits();
+        account.stamp(next);
+        return next;
+    }
+
+    private static void requirePositive(long amount) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Amount must be positive: " + amount);
+        }
+    }
+
+    private enum Kind {
+        DEPOSIT,
+        WITHDRAWAL,
+        TRANSFER,
+        BALANCE
+    }
+
+    private static final class Request {
+
+        final Kind kind;
+        // the transfer target's handle
+        final int other;
+        final long amount;
+        final CompletableFuture<Object> result = new CompletableFuture<>();
+        // set by the combiner under the account's lock, read by the same thread afterwards
+        Object value;
+        RuntimeException failure;
+
+        Request(Kind kind, int other, long amount) {
+            this.kind = kind;
+            this.other = other;
+            this.amount = amount;
+        }
+    }
+
+    private static final class Combiner {
+
+        final int handle;
+        final Queue<Request> queue = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean active = new AtomicBoolean();
+
+        Combiner(int handle) {
+            this.handle = handle;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.ledger;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pending credits of a striped {@link Account}, spread over per-thread stripes in the manner of
+ * {@link java.util.concurrent.atomic.LongAdder}, so concurrent credits to one account do not
+ * queue on its lock. Unlike a LongAdder cell, a stripe keeps each credit, not just their sum:
+ * every credit still needs its own journal entry. Folding moves the pending credits into the
+ * balance and the journal in one pass, under the account's lock and every stripe lock at once.
+ *
+ * <p>Lock order: account locks first, in handle order, then stripe locks. A stripe lock is never
+ * held while an account lock is being acquired.
+ */
+final class CreditStripes {
+
+    private static final Entry.Type[] TYPES = Entry.Type.values();
+    private static final int MAX_STRIPES = 64;
+    // a stripe this full asks to be folded, so a credit-only account's pending credits stay bounded
+    static final int FOLD_THRESHOLD = 4_096;
+
+    private final Stripe[] stripes;
+    private final int mask;
+
+    CreditStripes() {
+        int count = Math.min(MAX_STRIPES, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1));
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.mask = count - 1;
+    }
+
+    /** The calling thread's stripe: threads keep hitting the same one, and mostly only their own. */
+    Stripe current() {
+        long id = Thread.currentThread().getId();
+        return stripes[(int) ((id * 0x9E3779B97F4A7C15L) >>> 32) & mask];
+    }
+
+    /** Call while holding {@code account}'s lock. */
+    void foldInto(Account account) {
+        lockAll();
+        try {
+            long newest = 0;
+            for (Stripe stripe : stripes) {
+                if (stripe.size > 0) {
+                    newest = Math.max(newest, stripe.epoch);
+                }
+            }
+            if (newest == 0) {
+                return;
+            }
+            // the fold is a write of the newest credit's epoch; older credits are in the prior balance too
+            account.stamp(newest);
+            long writeEpoch = account.writeEpoch();
+            long lastLsn = account.lastLsn();
+            for (Stripe stripe : stripes) {
+                int older = stripe.epoch < writeEpoch ? stripe.size : stripe.boundary;
+                for (int i = 0; i < stripe.size; i++) {
+                    account.add(stripe.amounts[i]);
+                    account.record(TYPES[stripe.types[i]]);
+                    if (i < older) {
+                        account.addToPrior(stripe.amounts[i]);
+                    }
+                }
+                lastLsn = Math.max(lastLsn, stripe.lastLsn);
+                stripe.clear();
+            }
+            account.markLogged(lastLsn);
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /** As {@link Account#balanceAsOf}, pending credits included. Takes no account lock. */
+    long balanceAsOf(Account account, long cut) {
+        lockAll();
+        try {
+            long balance = account.balanceAsOf(cut);
+            for (Stripe stripe : stripes) {
+                int upTo = stripe.epoch <= cut ? stripe.size : stripe.boundary;
+                for (int i = 0; i < upTo; i++) {
+                    balance += stripe.amounts[i];
+                }
+            }
+            return balance;
+        } finally {
+            unlockAll();
+        }
+    }
+
+    private void lockAll() {
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+        }
+    }
+
+    private void unlockAll() {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            stripes[i].lock.unlock();
+        }
+    }
+
+    static final class Stripe {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        // guarded by lock
+        private byte[] types = new byte[16];
+        private long[] amounts = new long[16];
+        private int size;
+        private long lastLsn;
+        // epoch of the newest credit; the credits before boundary are all from earlier epochs
+        private long epoch;
+        private int boundary;
+
+        void lock() {
+            lock.lock();
+        }
+
+        void unlock() {
+            lock.unlock();
+        }
+
+        /** Call while holding this stripe's lock. Returns true once the stripe should be folded. */
+        boolean add(Entry.Type type, long amount, long lsn, long epoch) {
+            if (epoch > this.epoch) {
+                this.epoch = epoch;
+                boundary = size;
+            }
+            if (size == amounts.length) {
+                types = Arrays.copyOf(types, size * 2);
+                amounts = Arrays.copyOf(amounts, size * 2);
+            }
+            types[size] = (byte) type.ordinal();
+            amounts[size] = amount;
+            size++;
+            lastLsn = Math.max(lastLsn, lsn);
+            return size >= FOLD_THRESHOLD;
+        }
+
+        private void clear() {
+            if (amounts.length > FOLD_THRESHOLD) {
+                // a burst past the threshold should not pin its arrays forever
+                types = new byte[16];
+                amounts = new long[16];
+            }
+            size = 0;
+            boundary = 0;
+        }
+    }
+}
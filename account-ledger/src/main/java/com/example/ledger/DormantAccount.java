@@ -0,0 +1,77 @@
+package com.example.ledger;
+
+/**
+ * An evicted account, as the registry keeps it: where its state went in the {@link DormantStore},
+ * plus the few numbers snapshots and audits read, so neither has to touch the disk. An evicted
+ * account cannot change, so these stay exact until it is reloaded. A {@link Account} with a
+ * journal and a lock costs several hundred bytes; this is about a hundred.
+ *
+ * <p>Compared by identity: reloading replaces exactly this instance, never an equal one.
+ */
+final class DormantAccount extends AccountSlot {
+
+    private final String id;
+    private final int handle;
+    private final long position;
+    private final int length;
+    private final long balance;
+    private final long nextSequence;
+    private final long lastLsn;
+    private final long openedEpoch;
+    private final long writeEpoch;
+    private final long priorBalance;
+
+    // call while holding account's lock
+    DormantAccount(Account account, long position, int length) {
+        this.id = account.id();
+        this.handle = account.handle();
+        this.position = position;
+        this.length = length;
+        this.balance = account.balance();
+        this.nextSequence = account.nextSequence();
+        this.lastLsn = account.lastLsn();
+        this.openedEpoch = account.openedEpoch();
+        this.writeEpoch = account.writeEpoch();
+        this.priorBalance = account.priorBalance();
+    }
+
+    @Override
+    String id() {
+        return id;
+    }
+
+    @Override
+    int handle() {
+        return handle;
+    }
+
+    long position() {
+        return position;
+    }
+
+    int length() {
+        return length;
+    }
+
+    long balance() {
+        return balance;
+    }
+
+    long nextSequence() {
+        return nextSequence;
+    }
+
+    long lastLsn() {
+        return lastLsn;
+    }
+
+    @Override
+    long openedEpoch() {
+        return openedEpoch;
+    }
+
+    @Override
+    long balanceAsOf(long cut) {
+        return writeEpoch <= cut ? balance : priorBalance;
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.ledger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Local on-disk store for evicted accounts: one file, with each eviction writing the account's
+ * balance, bookkeeping and in-memory journal tail as one record. The record's position lives in the
+ * {@link DormantAccount}, so a reload is one positional read.
+ *
+ * <p>Records go into extents of a power of two bytes, at least {@value #MIN_EXTENT}. Once an account
+ * is reloaded its extent is {@link #release released}, and the next record of the same size is
+ * written there instead of at the end. Extents are never split or merged, so the file stays within
+ * about twice the largest amount of dormant data held at once, per extent size.
+ *
+ * <p>Only the evicting thread writes. Reloads read at positions that were written before the
+ * {@link DormantAccount} pointing to them was published, from any thread. An extent can be reused
+ * while a thread that lost the race to reload its account is still reading it: such a reader must
+ * check that the registry still holds the {@link DormantAccount} before it {@link #decode decodes}
+ * what it read.
+ *
+ * <p>Scratch space for this instance, like {@link JournalArchive}: the write-ahead log and
+ * snapshots hold every balance, dormant or not. {@link #close()} deletes the file.
+ */
+final class DormantStore implements AutoCloseable {
+
+    private static final int MIN_EXTENT = 64;
+    private static final int MIN_EXTENT_SHIFT = Integer.numberOfTrailingZeros(MIN_EXTENT);
+
+    private final Path file;
+    private final FileChannel channel;
+    // written by the evicting thread only; read by evictionStats
+    private volatile long end;
+    // evicting thread only: free extent positions, by size class
+    private final List<ArrayDeque<Long>> free = new ArrayList<>();
+    // released by reloading threads, moved into free by the evicting thread
+    private final Queue<DormantAccount> released = new ConcurrentLinkedQueue<>();
+
+    DormantStore(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        this.file = directory.resolve("dormant-accounts.dat");
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /** Call while holding {@code account}'s lock, from the evicting thread. */
+    DormantAccount write(Account account) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(account.handle());
+        out.writeUTF(account.id());
+        out.writeLong(account.balance());
+        out.writeLong(account.lastLsn());
+        out.writeLong(account.openedEpoch());
+        out.writeLong(account.writeEpoch());
+        out.writeLong(account.priorBalance());
+        account.journal().writeTo(out);
+        ByteBuffer record = ByteBuffer.wrap(bytes.toByteArray());
+        long position = allocate(sizeClass(record.limit()));
+        while (record.hasRemaining()) {
+            channel.write(record, position + record.position());
+        }
+        return new DormantAccount(account, position, record.limit());
+    }
+
+    /**
+     * The record {@code dormant} points to, as bytes. Check that {@code dormant} is still the
+     * registry entry before decoding them: if it was reloaded meanwhile, they may belong to a later
+     * record.
+     */
+    byte[] read(DormantAccount dormant) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(dormant.length());
+        while (record.hasRemaining()) {
+            if (channel.read(record, dormant.position() + record.position()) < 0) {
+                throw new EOFException("Dormant account record cut short: " + dormant.id());
+            }
+        }
+        return record.array();
+    }
+
+    /** A fresh copy of the account {@code dormant} stands for, from its record; not yet published anywhere. */
+    Account decode(DormantAccount dormant, byte[] record, JournalArchive archive) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        int handle = in.readInt();
+        String id = in.readUTF();
+        if (handle != dormant.handle() || !id.equals(dormant.id())) {
+            throw new IOException("Dormant account record mismatch: expected " + dormant.id() + ", found " + id);
+        }
+        long balance = in.readLong();
+        long lastLsn = in.readLong();
+        long openedEpoch = in.readLong();
+        long writeEpoch = in.readLong();
+        long priorBalance = in.readLong();
+        Journal journal = Journal.readFrom(in, archive);
+        return new Account(handle, id, balance, journal, lastLsn, openedEpoch, writeEpoch, priorBalance);
+    }
+
+    /**
+     * Frees the extent of {@code dormant} for later records. Call once it is no longer in the
+     * registry, from any thread; the evicting thread reuses the extent from its next write on.
+     */
+    void release(DormantAccount dormant) {
+        released.add(dormant);
+    }
+
+    /** Bytes up to the end of the last extent, free extents included. */
+    long size() {
+        return end;
+    }
+
+    // evicting thread only
+    private long allocate(int sizeClass) {
+        for (DormantAccount dormant; (dormant = released.poll()) != null; ) {
+            freeList(sizeClass(dormant.length())).push(dormant.position());
+        }
+        Long reused = freeList(sizeClass).poll();
+        if (reused != null) {
+            return reused;
+        }
+        long position = end;
+        end = position + ((long) MIN_EXTENT << sizeClass);
+        return position;
+    }
+
+    private ArrayDeque<Long> freeList(int sizeClass) {
+        while (free.size() <= sizeClass) {
+            free.add(new ArrayDeque<>());
+        }
+        return free.get(sizeClass);
+    }
+
+    // 0 for up to MIN_EXTENT bytes, 1 for up to twice that, and so on
+    private static int sizeClass(int length) {
+        return Math.max(0, Integer.SIZE - Integer.numberOfLeadingZeros(length - 1) - MIN_EXTENT_SHIFT);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+        Files.deleteIfExists(file);
+    }
+}
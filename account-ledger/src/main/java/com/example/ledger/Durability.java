@@ -0,0 +1,22 @@
+package com.example.ledger;
+
+/**
+ * When a durable {@link Ledger} acknowledges an operation, relative to the write-ahead log fsync.
+ */
+public enum Durability {
+
+    /** Every operation forces the log itself before returning: one fsync per operation. */
+    PER_OP,
+
+    /**
+     * Operations wait for the group-commit thread, which fsyncs everything appended since its last
+     * pass in one go: concurrent callers share fsyncs, and none returns before its record is durable.
+     */
+    BATCHED,
+
+    /**
+     * Operations return as soon as their record is in the mapped log; the group-commit thread fsyncs
+     * in the background. A crash can lose the last few acknowledged operations, never reorder them.
+     */
+    ASYNC
+}
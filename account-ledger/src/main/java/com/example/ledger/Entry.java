@@ -1,6 +1,10 @@
 package com.example.ledger;
 
-public record Entry(Type type, long amount, long balanceAfter) {
+/**
+ * One journal line. {@code sequence} is the entry's position in its account's journal, starting at 0:
+ * strictly increasing per account and never reused, so readers resume from the last one they saw.
+ */
+public record Entry(long sequence, Type type, long amount, long balanceAfter) {
 
     public enum Type {
         DEPOSIT,
@@ -0,0 +1,89 @@
+package com.example.ledger;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Write epochs behind {@link Ledger}'s consistent audits. Every balance change registers in the
+ * current epoch for as long as it takes to apply, under the locks of the accounts it touches.
+ * {@link #advance()} starts a new epoch and then waits for the writes still running in the old
+ * one. Once it returns, every write is either finished and stamped with an epoch up to the
+ * returned cut, or stamped later; with each account's balance from before its first later
+ * write, that gives one consistent instant to read without stopping writers.
+ *
+ * <p>Writers never wait. Each counts itself in on a per-thread cell of the epoch's counter, so
+ * writers on different cores rarely share a cache line. Only the two newest epochs are ever live,
+ * so counters are kept by epoch parity.
+ */
+final class Epochs {
+
+    private static final int MAX_CELLS = 64;
+    // longs per cell: one cache line, so neighbouring cells do not false-share
+    private static final int PAD = 8;
+    private static final int SPINS_BEFORE_YIELD = 1_000;
+
+    private final AtomicLongArray[] active = new AtomicLongArray[2];
+    private final int mask;
+    // starts at 1: epoch 0 means "never written"
+    private volatile long current = 1;
+
+    Epochs() {
+        int cells = Math.min(MAX_CELLS, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1));
+        this.mask = cells - 1;
+        active[0] = new AtomicLongArray(cells * PAD);
+        active[1] = new AtomicLongArray(cells * PAD);
+    }
+
+    /** Registers a write and returns its epoch. Call under the locks of the accounts it changes. */
+    long enter() {
+        int cell = cell();
+        while (true) {
+            long epoch = current;
+            AtomicLongArray counts = active[(int) epoch & 1];
+            counts.getAndIncrement(cell);
+            // pairs with advance(): either it sees our count, or we see its new epoch and move on
+            if (current == epoch) {
+                return epoch;
+            }
+            counts.getAndDecrement(cell);
+        }
+    }
+
+    /** Call on the thread that entered, after the write is applied and before its locks are released. */
+    void exit(long epoch) {
+        active[(int) epoch & 1].getAndDecrement(cell());
+    }
+
+    /**
+     * Starts a new epoch and waits until no write of the previous one is running. Returns the
+     * previous epoch: the cut. Callers must not overlap, or a third epoch could go live.
+     */
+    long advance() {
+        long cut = current;
+        current = cut + 1;
+        AtomicLongArray counts = active[(int) cut & 1];
+        int spins = 0;
+        while (running(counts)) {
+            if (++spins < SPINS_BEFORE_YIELD) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();  // a writer was descheduled mid-write
+            }
+        }
+        return cut;
+    }
+
+    private boolean running(AtomicLongArray counts) {
+        for (int i = 0; i < counts.length(); i += PAD) {
+            // a thread always enters and exits on the same cell, so a cell is never below its live writers
+            if (counts.get(i) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int cell() {
+        long id = Thread.currentThread().getId();
+        return ((int) ((id * 0x9E3779B97F4A7C15L) >>> 32) & mask) * PAD;
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.ledger;
+
+import java.time.Duration;
+
+/**
+ * Counters of a {@link Ledger#evictIdleAccounts evicting} ledger since it was opened. Accounts are
+ * either resident, with their journal on the heap, or dormant, in the local store. {@code evictions}
+ * and {@code reloads} only grow: sample twice and divide by the time between for rates. Reload
+ * latency is the time an operation on a dormant account waited for it to be read back.
+ * {@code storeBytes} is the size of the store's file, including space freed by reloads that later
+ * evictions will reuse.
+ */
+public record EvictionStats(long residentAccounts, long dormantAccounts, long evictions, long reloads,
+                            Duration meanReloadLatency, Duration maxReloadLatency, long storeBytes) {
+}
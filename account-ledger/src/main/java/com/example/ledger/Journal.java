@@ -0,0 +1,293 @@
+package com.example.ledger;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Append-only, columnar per-account journal: a {@code byte} column for the entry type and a
+ * {@code long} column for balanceAfter, in chunked primitive arrays. The amount is not stored.
+ * Every entry moves the balance by exactly its amount, so it is the distance from the previous
+ * balance. That is 9 bytes per entry, against roughly 36 for a boxed {@link Entry} plus its
+ * ArrayList slot.
+ *
+ * <p>Not thread-safe by itself: appends and {@link #view()} run under the owning account's
+ * lock. A view captures the size and the chunk directory at that moment. Slots below that
+ * size are never written again, and chunks are never moved once full, so the view can be read
+ * after the lock is released, without copying.
+ *
+ * <p>With a {@link JournalArchive}, full chunks past the archive's retention are moved to disk in
+ * the background. Their directory slots are then empty, and a {@link JournalArchive.Chunk} in
+ * the cold directory says where they went. Views read cold chunks back transparently.
+ */
+final class Journal {
+
+    static final int CHUNK_SHIFT = 12;
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    // most accounts have a handful of entries; the first chunk grows up to CHUNK_SIZE by doubling
+    private static final int INITIAL_CAPACITY = 8;
+
+    private static final Entry.Type[] TYPES = Entry.Type.values();
+
+    private static final byte[][] NO_TYPES = new byte[0][];
+    private static final long[][] NO_BALANCES = new long[0][];
+    private static final JournalArchive.Chunk[] NO_COLD = new JournalArchive.Chunk[0];
+
+    private final long openingBalance;
+    private final long firstSequence;
+    // nothing is allocated until the first entry: most accounts in a large ledger are idle
+    private byte[][] types = NO_TYPES;
+    private long[][] balances = NO_BALANCES;
+    private int size;
+    // null while every entry is on the heap
+    private JournalArchive archive;
+    // the first coldChunks chunks are on disk, at these locations
+    private JournalArchive.Chunk[] cold = NO_COLD;
+    private int coldChunks;
+
+    Journal(long openingBalance) {
+        this(openingBalance, 0);
+    }
+
+    /** A journal continuing an older history: its first entry gets {@code firstSequence}. */
+    Journal(long openingBalance, long firstSequence) {
+        this.openingBalance = openingBalance;
+        this.firstSequence = firstSequence;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long nextSequence() {
+        return firstSequence + size;
+    }
+
+    /** Returns true when the append filled a chunk that, with the ones before it, is due for spilling. */
+    boolean append(Entry.Type type, long balanceAfter) {
+        int chunk = size >>> CHUNK_SHIFT;
+        int slot = size & CHUNK_MASK;
+        if (chunk == types.length) {
+            types = Arrays.copyOf(types, Math.max(1, chunk * 2));
+            balances = Arrays.copyOf(balances, Math.max(1, chunk * 2));
+        }
+        if (types[chunk] == null) {
+            int capacity = chunk == 0 ? INITIAL_CAPACITY : CHUNK_SIZE;
+            types[chunk] = new byte[capacity];
+            balances[chunk] = new long[capacity];
+        } else if (slot == types[chunk].length) {
+            // only the first chunk is ever regrown; a view holding the old arrays keeps valid data
+            types[chunk] = Arrays.copyOf(types[chunk], Math.min(slot * 2, CHUNK_SIZE));
+            balances[chunk] = Arrays.copyOf(balances[chunk], Math.min(slot * 2, CHUNK_SIZE));
+        }
+        types[chunk][slot] = (byte) type.ordinal();
+        balances[chunk][slot] = balanceAfter;
+        size++;
+        return archive != null && (size & CHUNK_MASK) == 0 && spillableChunks() > 0;
+    }
+
+    void tier(JournalArchive archive) {
+        this.archive = archive;
+    }
+
+    JournalArchive archive() {
+        return archive;
+    }
+
+    int coldChunks() {
+        return coldChunks;
+    }
+
+    /** Full heap chunks that hold none of the newest {@code retainedEntries}. */
+    int spillableChunks() {
+        long old = (long) size - archive.retainedEntries();
+        return old <= 0 ? 0 : (int) (old >>> CHUNK_SHIFT) - coldChunks;
+    }
+
+    byte[] hotTypes(int chunk) {
+        return types[chunk];
+    }
+
+    long[] hotBalances(int chunk) {
+        return balances[chunk];
+    }
+
+    long balanceBefore(int chunk) {
+        if (chunk == 0) {
+            return openingBalance;
+        }
+        return chunk <= coldChunks ? cold[chunk - 1].lastBalance() : balances[chunk - 1][CHUNK_MASK];
+    }
+
+    /** Swaps the oldest heap chunk for its location on disk. */
+    void markCold(int chunk, JournalArchive.Chunk location) {
+        if (chunk != coldChunks) {
+            throw new IllegalStateException("Chunks go cold oldest first: " + chunk + " after " + coldChunks);
+        }
+        if (chunk == cold.length) {
+            cold = Arrays.copyOf(cold, Math.max(4, chunk * 2));
+        }
+        cold[chunk] = location;
+        types[chunk] = null;
+        balances[chunk] = null;
+        coldChunks++;
+    }
+
+    /** Writes this journal for {@link #readFrom}: the heap entries in full, cold chunks by location. */
+    void writeTo(DataOutput out) throws IOException {
+        out.writeLong(openingBalance);
+        out.writeLong(firstSequence);
+        out.writeInt(size);
+        out.writeInt(coldChunks);
+        for (int chunk = 0; chunk < coldChunks; chunk++) {
+            JournalArchive.Chunk location = cold[chunk];
+            out.writeInt(location.segment());
+            out.writeInt(location.offset());
+            out.writeInt(location.length());
+            out.writeInt(location.rawLength());
+            out.writeLong(location.openingBalance());
+            out.writeLong(location.lastBalance());
+        }
+        for (int index = coldChunks << CHUNK_SHIFT; index < size; index++) {
+            out.writeByte(types[index >>> CHUNK_SHIFT][index & CHUNK_MASK]);
+            out.writeLong(balances[index >>> CHUNK_SHIFT][index & CHUNK_MASK]);
+        }
+    }
+
+    /** A journal as {@link #writeTo} wrote it; {@code archive} holds its cold chunks, if it has any. */
+    static Journal readFrom(DataInput in, JournalArchive archive) throws IOException {
+        Journal journal = new Journal(in.readLong(), in.readLong());
+        int size = in.readInt();
+        int coldChunks = in.readInt();
+        if (coldChunks > 0) {
+            journal.cold = new JournalArchive.Chunk[coldChunks];
+            for (int chunk = 0; chunk < coldChunks; chunk++) {
+                journal.cold[chunk] = new JournalArchive.Chunk(in.readInt(), in.readInt(), in.readInt(), in.readInt(),
+                        in.readLong(), in.readLong());
+            }
+            journal.coldChunks = coldChunks;
+            journal.size = coldChunks << CHUNK_SHIFT;
+            journal.types = new byte[coldChunks][];
+            journal.balances = new long[coldChunks][];
+        }
+        while (journal.size < size) {
+            journal.append(TYPES[in.readByte()], in.readLong());
+        }
+        journal.archive = archive;
+        return journal;
+    }
+
+    /** Zero-copy, read-only view of the first {@link #size()} entries; entries are built on access. */
+    View view() {
+        JournalArchive.Chunk[] coldCopy = coldChunks == 0 ? NO_COLD : Arrays.copyOf(cold, coldChunks);
+        return new View(openingBalance, firstSequence, types.clone(), balances.clone(), coldCopy, archive, size);
+    }
+
+    /** Reversed view of {@code entries}, without copying. */
+    static List<Entry> newestFirst(List<Entry> entries) {
+        return new AbstractList<>() {
+            @Override
+            public Entry get(int index) {
+                return entries.get(entries.size() - 1 - index);
+            }
+
+            @Override
+            public int size() {
+                return entries.size();
+            }
+        };
+    }
+
+    static final class View extends AbstractList<Entry> implements RandomAccess {
+
+        private final long openingBalance;
+        private final long firstSequence;
+        // directory copies (a few references), never the columns themselves
+        private final byte[][] types;
+        private final long[][] balances;
+        private final JournalArchive.Chunk[] cold;
+        private final JournalArchive archive;
+        private final int size;
+        // the last cold chunk read: statements walk entries in order, so most reads hit it
+        private volatile Decoded decoded;
+
+        View(long openingBalance, long firstSequence, byte[][] types, long[][] balances,
+             JournalArchive.Chunk[] cold, JournalArchive archive, int size) {
+            this.openingBalance = openingBalance;
+            this.firstSequence = firstSequence;
+            this.types = types;
+            this.balances = balances;
+            this.cold = cold;
+            this.archive = archive;
+            this.size = size;
+        }
+
+        @Override
+        public Entry get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+            }
+            int chunk = index >>> CHUNK_SHIFT;
+            int slot = index & CHUNK_MASK;
+            byte[] chunkTypes = types[chunk];
+            long[] chunkBalances = balances[chunk];
+            if (chunkTypes == null) {
+                JournalArchive.Block block = coldBlock(chunk);
+                chunkTypes = block.types();
+                chunkBalances = block.balances();
+            }
+            Entry.Type type = TYPES[chunkTypes[slot]];
+            long balanceAfter = chunkBalances[slot];
+            long previous;
+            if (slot > 0) {
+                previous = chunkBalances[slot - 1];
+            } else if (chunk == 0) {
+                previous = openingBalance;
+            } else {
+                // the previous chunk may be cold too: its last balance is kept in the index
+                previous = chunk <= cold.length
+                        ? cold[chunk - 1].lastBalance()
+                        : balances[chunk - 1][CHUNK_MASK];
+            }
+            long amount = isCredit(type) ? balanceAfter - previous : previous - balanceAfter;
+            return new Entry(firstSequence + index, type, amount, balanceAfter);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        /** Sequence of the entry at index 0; entries before it are not held by this journal. */
+        long firstSequence() {
+            return firstSequence;
+        }
+
+        /** Index of {@code sequence} in this view, clamped to [0, size]. */
+        int indexOf(long sequence) {
+            return (int) Math.max(0, Math.min(sequence - firstSequence, size));
+        }
+
+        private JournalArchive.Block coldBlock(int chunk) {
+            Decoded last = decoded;
+            if (last != null && last.chunk() == chunk) {
+                return last.block();
+            }
+            JournalArchive.Block block = archive.read(cold[chunk]);
+            decoded = new Decoded(chunk, block);
+            return block;
+        }
+    }
+
+    private record Decoded(int chunk, JournalArchive.Block block) {
+    }
+
+    private static boolean isCredit(Entry.Type type) {
+        return type == Entry.Type.DEPOSIT || type == Entry.Type.TRANSFER_IN;
+    }
+}
@@ -0,0 +1,263 @@
+package com.example.ledger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Cold tier for {@link Journal}s: full chunks of entries older than the newest
+ * {@code retainedEntries} of an account are moved off the heap into compressed, append-only
+ * segment files, by one background thread. A chunk is encoded as its type bytes, each followed by
+ * the zigzag varint of the balance movement. That is mostly one or two bytes per entry before
+ * deflate, against nine in memory.
+ *
+ * <p>Segments are memory-mapped at their full size when created and filled front to back. Reads
+ * inflate straight from the mapping, so cold history costs no heap until it is read, and then only
+ * for the chunk being read. The journal keeps one small {@link Chunk} per cold chunk as its sparse
+ * sequence index.
+ *
+ * <p>The files are scratch space for this process, not a durability mechanism: the write-ahead
+ * log and snapshots are. They are deleted on {@link #close()}. Views taken before that keep
+ * reading from their mappings.
+ */
+final class JournalArchive implements AutoCloseable {
+
+    private static final System.Logger LOG = System.getLogger(JournalArchive.class.getName());
+
+    static final int SEGMENT_SIZE = 64 << 20;
+    // a type byte plus a varint of at most ten bytes per entry
+    private static final int MAX_RAW_CHUNK = Journal.CHUNK_SIZE * 11;
+
+    private final Path directory;
+    private final int retainedEntries;
+    private final ExecutorService spiller;
+    private volatile boolean closed;
+    // written by the spill thread only; readers find a segment through a Chunk published under an account lock
+    private volatile List<MappedByteBuffer> segments = List.of();
+    private final List<Path> files = new ArrayList<>();
+    private MappedByteBuffer current;
+    private final byte[] raw = new byte[MAX_RAW_CHUNK];
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+
+    JournalArchive(Path directory, int retainedEntries) throws IOException {
+        if (retainedEntries <= 0) {
+            throw new IllegalArgumentException("Retained entries must be positive: " + retainedEntries);
+        }
+        Files.createDirectories(directory);
+        this.directory = directory;
+        this.retainedEntries = retainedEntries;
+        this.spiller = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ledger-journal-spill");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    int retainedEntries() {
+        return retainedEntries;
+    }
+
+    /** Queues {@code account} for spilling. Called under its lock, so it only enqueues. */
+    void spillLater(Account account) {
+        try {
+            spiller.execute(() -> {
+                if (closed) {
+                    return;
+                }
+                try {
+                    spill(account);
+                } catch (IOException | RuntimeException e) {
+                    // the entries stay on the heap; the next full chunk retries
+                    LOG.log(System.Logger.Level.WARNING, "Journal spill failed for " + account.id(), e);
+                }
+            });
+        } catch (RejectedExecutionException closing) {
+            // the ledger is closing: nothing more is spilled
+        }
+    }
+
+    /**
+     * Moves every chunk of {@code account}'s journal that is past retention to disk. The account's
+     * lock is held only to pick the chunks and, afterwards, to swap them for their locations; full
+     * chunks are never written again, so they are compressed and written without it.
+     */
+    // spill thread only
+    private void spill(Account account) throws IOException {
+        Journal journal = account.journal();
+        int from;
+        int to;
+        account.lock();
+        try {
+            if (account.evicted()) {
+                // its journal went to the dormant store as it was; the reloaded account spills its own
+                return;
+            }
+            from = journal.coldChunks();
+            to = from + journal.spillableChunks();
+        } finally {
+            account.unlock();
+        }
+        for (int chunk = from; chunk < to; chunk++) {
+            byte[] types;
+            long[] balances;
+            long openingBalance;
+            account.lock();
+            try {
+                types = journal.hotTypes(chunk);
+                balances = journal.hotBalances(chunk);
+                openingBalance = journal.balanceBefore(chunk);
+            } finally {
+                account.unlock();
+            }
+            Chunk location = write(types, balances, openingBalance);
+            account.lock();
+            try {
+                journal.markCold(chunk, location);
+            } finally {
+                account.unlock();
+            }
+        }
+    }
+
+    /** Waits until everything queued so far is spilled. */
+    void awaitIdle() {
+        try {
+            spiller.submit(() -> { }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } catch (RejectedExecutionException closed) {
+            // nothing is queued once closed
+        }
+    }
+
+    Block read(Chunk chunk) {
+        ByteBuffer compressed = segments.get(chunk.segment()).slice(chunk.offset(), chunk.length());
+        byte[] bytes = new byte[chunk.rawLength()];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed);
+            int read = inflater.inflate(bytes);
+            if (read != bytes.length) {
+                throw new IllegalStateException("Corrupt journal chunk: " + read + " of " + bytes.length + " bytes");
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt journal chunk", e);
+        } finally {
+            inflater.end();
+        }
+        byte[] types = new byte[Journal.CHUNK_SIZE];
+        long[] balances = new long[Journal.CHUNK_SIZE];
+        long balance = chunk.openingBalance();
+        int position = 0;
+        for (int i = 0; i < Journal.CHUNK_SIZE; i++) {
+            types[i] = bytes[position++];
+            long zigzag = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes[position++];
+                zigzag |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            balance += (zigzag >>> 1) ^ -(zigzag & 1);
+            balances[i] = balance;
+        }
+        return new Block(types, balances);
+    }
+
+    /** Drops queued spills, waits for the one in progress, and deletes the segment files. */
+    @Override
+    public void close() {
+        closed = true;
+        // no interrupt: it would close the channel a segment is being mapped through
+        spiller.shutdown();
+        boolean interrupted = false;
+        while (!spiller.isTerminated()) {
+            try {
+                spiller.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        deflater.end();
+        for (Path file : files) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                LOG.log(System.Logger.Level.WARNING, "Could not delete journal segment " + file, e);
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // spill thread only
+    private Chunk write(byte[] types, long[] balances, long openingBalance) throws IOException {
+        int rawLength = 0;
+        long previous = openingBalance;
+        for (int i = 0; i < Journal.CHUNK_SIZE; i++) {
+            raw[rawLength++] = types[i];
+            long delta = balances[i] - previous;
+            long zigzag = (delta << 1) ^ (delta >> 63);
+            while ((zigzag & ~0x7FL) != 0) {
+                raw[rawLength++] = (byte) ((zigzag & 0x7F) | 0x80);
+                zigzag >>>= 7;
+            }
+            raw[rawLength++] = (byte) zigzag;
+            previous = balances[i];
+        }
+        deflater.reset();
+        deflater.setInput(raw, 0, rawLength);
+        deflater.finish();
+        // deflate never grows a block by more than a few bytes per 16 KiB
+        if (current == null || current.remaining() < rawLength + 1_024) {
+            roll();
+        }
+        int offset = current.position();
+        while (!deflater.finished()) {
+            deflater.deflate(current);
+        }
+        return new Chunk(segments.size() - 1, offset, current.position() - offset, rawLength,
+                openingBalance, previous);
+    }
+
+    private void roll() throws IOException {
+        Path file = directory.resolve(String.format("journal-%06d.seg", files.size() + 1));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            current = channel.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_SIZE);
+        }
+        files.add(file);
+        List<MappedByteBuffer> grown = new ArrayList<>(segments);
+        grown.add(current);
+        segments = List.copyOf(grown);
+    }
+
+    /**
+     * Where one spilled chunk lives, and the two balances around it: {@code openingBalance} to
+     * decode it, {@code lastBalance} so the next chunk's first amount needs no decoding at all.
+     */
+    record Chunk(int segment, int offset, int length, int rawLength, long openingBalance, long lastBalance) {
+    }
+
+    /** A decoded chunk, in the same columns as a hot one. */
+    record Block(byte[] types, long[] balances) {
+    }
+}
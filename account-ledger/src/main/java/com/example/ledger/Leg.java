@@ -0,0 +1,8 @@
+package com.example.ledger;
+
+/**
+ * One transfer inside a {@link Ledger#applyBatch batch}: {@code amount} minor units from
+ * {@code fromId} to {@code toId}.
+ */
+public record Leg(String fromId, String toId, long amount) {
+}
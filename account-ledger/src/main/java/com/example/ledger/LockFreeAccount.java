@@ -0,0 +1,202 @@
+package com.example.ledger;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Account for {@link LockFreeLedger}. Balance and journal tail live in one immutable node behind
+ * an {@link AtomicReference}: a single compare-and-set moves both, so a journal entry and the
+ * balance it reports can never disagree, and no lock is ever taken.
+ *
+ * <p>A transfer has to move two heads as one step, which no single CAS can. It uses a descriptor
+ * instead, as in a two-word multi-word CAS: the {@link Transfer} is installed in both heads, in id
+ * order, then decided with one CAS on its status, then replaced by the new nodes. Any thread that
+ * finds a descriptor in a head finishes that transfer before going on, so a stalled transfer never
+ * blocks anyone. While a descriptor sits in a head, the account's value is the node before the
+ * transfer until the transfer is decided, and the node after it once it succeeded.
+ */
+final class LockFreeAccount {
+
+    private final String id;
+    // a Node, or a Transfer in progress on this account
+    private final AtomicReference<Object> head;
+
+    LockFreeAccount(String id, long initialBalance) {
+        this.id = id;
+        this.head = new AtomicReference<>(new Node(null, 0, initialBalance, null, 0));
+    }
+
+    String id() {
+        return id;
+    }
+
+    // one volatile read -- no lock needed for visibility, and no helping either
+    long balance() {
+        return value().balanceAfter;
+    }
+
+    void add(Entry.Type type, long amount) {
+        Node current;
+        Node next;
+        do {
+            current = node();
+            next = current.append(type, amount, current.balanceAfter + amount);
+        } while (!head.compareAndSet(current, next));
+    }
+
+    // the guard is re-checked against every fresh head, so a retry can still fail with insufficient funds
+    void subtract(Entry.Type type, long amount) {
+        Node current;
+        Node next;
+        do {
+            current = node();
+            requireFunds(this, current, amount);
+            next = current.append(type, amount, current.balanceAfter - amount);
+        } while (!head.compareAndSet(current, next));
+    }
+
+    /**
+     * Moves {@code amount} from {@code from} to {@code to} in one atomic step: a reader of either
+     * account sees both entries or neither. Retries only if either account changed between reading it
+     * and installing the descriptor; the funds check is repeated against the fresh source.
+     */
+    static void transfer(LockFreeAccount from, LockFreeAccount to, long amount) {
+        while (true) {
+            Node source = from.node();
+            Node target = to.node();
+            requireFunds(from, source, amount);
+            if (new Transfer(from, to, source, target, amount).complete()) {
+                return;
+            }
+        }
+    }
+
+    // nodes are immutable, so walking back from one head is a consistent snapshot without locking
+    List<Entry> entries() {
+        Node node = value();
+        Entry[] entries = new Entry[node.count];
+        for (int i = node.count - 1; i >= 0; i--, node = node.prev) {
+            entries[i] = new Entry(i, node.type, node.amount, node.balanceAfter);
+        }
+        return Collections.unmodifiableList(Arrays.asList(entries));
+    }
+
+    private static void requireFunds(LockFreeAccount account, Node current, long amount) {
+        if (current.balanceAfter < amount) {
+            throw new IllegalStateException("Insufficient funds on " + account.id);
+        }
+    }
+
+    // the account's value as of this read, whether or not a transfer is in progress on it
+    private Node value() {
+        Object current = head.get();
+        return current instanceof Transfer transfer ? transfer.valueOf(this) : (Node) current;
+    }
+
+    // the head once no transfer is in progress on it: any found there is finished first
+    private Node node() {
+        while (true) {
+            Object current = head.get();
+            if (current instanceof Node node) {
+                return node;
+            }
+            ((Transfer) current).complete();
+        }
+    }
+
+    /**
+     * Descriptor of one transfer. Every field but the status is fixed at construction, so any
+     * thread can carry the transfer on from wherever it stands. The status is decided exactly once:
+     * {@code SUCCEEDED} once both heads hold the descriptor, {@code FAILED} as soon as either head
+     * turns out to have moved past the node the transfer was built on.
+     */
+    private static final class Transfer {
+
+        private static final int UNDECIDED = 0;
+        private static final int SUCCEEDED = 1;
+        private static final int FAILED = 2;
+
+        private final LockFreeAccount from;
+        private final LockFreeAccount to;
+        private final Node source;
+        private final Node target;
+        private final Node debited;
+        private final Node credited;
+        private final AtomicInteger status = new AtomicInteger(UNDECIDED);
+
+        Transfer(LockFreeAccount from, LockFreeAccount to, Node source, Node target, long amount) {
+            this.from = from;
+            this.to = to;
+            this.source = source;
+            this.target = target;
+            this.debited = source.append(Entry.Type.TRANSFER_OUT, amount, source.balanceAfter - amount);
+            this.credited = target.append(Entry.Type.TRANSFER_IN, amount, target.balanceAfter + amount);
+        }
+
+        /** Carries the transfer through to the end; true if it succeeded. Safe to call from any thread. */
+        boolean complete() {
+            // the same order for every transfer: helping can then never go round in a circle
+            boolean fromFirst = from.id.compareTo(to.id) < 0;
+            if (install(fromFirst ? from : to) && install(fromFirst ? to : from)) {
+                status.compareAndSet(UNDECIDED, SUCCEEDED);
+            }
+            // a helper that installed the descriptor after the decision removes it here as well
+            from.head.compareAndSet(this, valueOf(from));
+            to.head.compareAndSet(this, valueOf(to));
+            return status.get() == SUCCEEDED;
+        }
+
+        // false once the transfer is decided, or fails because the account moved on
+        private boolean install(LockFreeAccount account) {
+            Node expected = account == from ? source : target;
+            while (status.get() == UNDECIDED) {
+                Object current = account.head.get();
+                if (current == this) {
+                    return true;
+                }
+                if (current instanceof Transfer other) {
+                    // holds every account before this one in the order, so it needs nothing we hold
+                    other.complete();
+                } else if (current != expected) {
+                    status.compareAndSet(UNDECIDED, FAILED);
+                } else if (account.head.compareAndSet(expected, this)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        Node valueOf(LockFreeAccount account) {
+            boolean succeeded = status.get() == SUCCEEDED;
+            if (account == from) {
+                return succeeded ? debited : source;
+            }
+            return succeeded ? credited : target;
+        }
+    }
+
+    /** Journal entry and the balance after it; the opening node (count 0) carries no entry. */
+    private static final class Node {
+
+        final Entry.Type type;
+        final long amount;
+        final long balanceAfter;
+        final Node prev;
+        final int count;
+
+        Node(Entry.Type type, long amount, long balanceAfter, Node prev, int count) {
+            this.type = type;
+            this.amount = amount;
+            this.balanceAfter = balanceAfter;
+            this.prev = prev;
+            this.count = count;
+        }
+
+        Node append(Entry.Type type, long amount, long balanceAfter) {
+            return new Node(type, amount, balanceAfter, this, count + 1);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.ledger;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lock-free variant of {@link Ledger} with the same API and rules. Every single-account
+ * operation is one compare-and-set on the account's head node, so a hot account sees CAS
+ * retries instead of a lock convoy, and {@code balanceOf} is a plain volatile read.
+ *
+ * <p>A transfer is atomic across both accounts, as in {@link Ledger}: it installs a descriptor in
+ * both heads and commits with one CAS on the descriptor, and whoever runs into an unfinished
+ * descriptor completes it. Reading the source and then the target never sees the amount missing
+ * from both. No lock is taken, so there is no lock order to get wrong, and a thread stalled in
+ * the middle of a transfer does not hold anyone up.
+ */
+public class LockFreeLedger {
+
+    private final Map<String, LockFreeAccount> accounts = new ConcurrentHashMap<>();
+
+    public void open(String accountId, long initialBalance) {
+        if (accounts.putIfAbsent(accountId, new LockFreeAccount(accountId, initialBalance)) != null) {
+            throw new IllegalArgumentException("Account already exists: " + accountId);
+        }
+    }
+
+    public long balanceOf(String accountId) {
+        return require(accountId).balance();
+    }
+
+    public void deposit(String accountId, long amount) {
+        requirePositive(amount);
+        require(accountId).add(Entry.Type.DEPOSIT, amount);
+    }
+
+    public void withdraw(String accountId, long amount) {
+        requirePositive(amount);
+        require(accountId).subtract(Entry.Type.WITHDRAWAL, amount);
+    }
+
+    public List<Entry> statement(String accountId) {
+        return require(accountId).entries();
+    }
+
+    public void transfer(String fromId, String toId, long amount) {
+        if (fromId.equals(toId)) {
+            throw new IllegalArgumentException("Cannot transfer to the same account: " + fromId);
+        }
+        requirePositive(amount);
+        LockFreeAccount from = require(fromId);
+        LockFreeAccount to = require(toId);
+        LockFreeAccount.transfer(from, to, amount);
+    }
+
+    private static void requirePositive(long amount) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Amount must be positive: " + amount);
+        }
+    }
+
+    private LockFreeAccount require(String accountId) {
+        LockFreeAccount account = accounts.get(accountId);
+        if (account == null) {
+            throw new IllegalArgumentException("Unknown account: " + accountId);
+        }
+        return account;
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.ledger;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free queue for many producers and exactly one consumer. Each slot carries a
+ * sequence number: a producer claims a position with one CAS on {@code tail}, writes the element
+ * and publishes it by advancing the slot's sequence; the consumer reads the slot once its
+ * sequence says it is full. Producers never wait for each other beyond that CAS.
+ */
+final class MpscRingBuffer<E> {
+
+    private final Object[] elements;
+    // slot i is free for position p when its sequence is p, and holds position p when it is p + 1
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    // written by the consumer only; atomic so that other threads can read size()
+    private final AtomicLong head = new AtomicLong();
+
+    MpscRingBuffer(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        this.elements = new Object[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /** Returns false when the buffer is full. */
+    boolean offer(E element) {
+        long position;
+        int slot;
+        while (true) {
+            position = tail.get();
+            slot = (int) position & mask;
+            long sequence = sequences.get(slot);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+            } else if (sequence < position) {
+                return false;  // the consumer has not freed this slot yet
+            }
+            // otherwise another producer claimed the position first: reread the tail
+        }
+        elements[slot] = element;
+        sequences.lazySet(slot, position + 1);  // release: publishes the element
+        return true;
+    }
+
+    /** Consumer thread only. Returns null when the buffer is empty. */
+    @SuppressWarnings("unchecked")
+    E poll() {
+        long position = head.get();
+        int slot = (int) position & mask;
+        if (sequences.get(slot) != position + 1) {
+            return null;
+        }
+        E element = (E) elements[slot];
+        elements[slot] = null;
+        sequences.lazySet(slot, position + elements.length);  // free for the next lap
+        head.lazySet(position + 1);
+        return element;
+    }
+
+    /** Approximate while producers or the consumer are active. */
+    int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+}
@@ -0,0 +1,335 @@
+package com.example.ledger;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Single-writer variant of {@link Ledger} with the same rules. Accounts are partitioned by id hash
+ * across {@code shards} worker threads. Each worker alone owns its accounts, so it runs their
+ * operations one after another with no locks and no lock order. Callers hand operations over
+ * through the shard's bounded ring buffer and get a {@link CompletableFuture}; the blocking
+ * methods wait on it. A full ring buffer makes callers spin until the worker catches up.
+ *
+ * <p>A transfer between two shards is two steps. The source shard debits, and that is the only
+ * step that can fail for lack of funds. It then passes the credit to the target shard. If the
+ * target account does not exist, the target shard passes the amount back, and the source records
+ * it as a {@code TRANSFER_IN}. Either way the future completes only after the last step, and money
+ * is never created or lost. Between the steps the amount is in flight, as in
+ * {@link LockFreeLedger}. Steps between shards travel over an unbounded queue, so two workers
+ * waiting on each other's full ring buffer cannot deadlock.
+ *
+ * <p>Argument errors (non-positive amount, transfer to self) are thrown at the call. Unknown
+ * accounts and insufficient funds fail the future; the blocking methods rethrow them unwrapped.
+ * Futures are completed on the shard thread, so dependent stages attached without an executor run
+ * there too and hold up the shard. Attach only short ones, or use the {@code *Async} variants.
+ */
+public class ShardedLedger implements AutoCloseable {
+
+    static final int DEFAULT_RING_CAPACITY = 1 << 14;
+    // busy-spin rounds before an idle worker parks
+    private static final int IDLE_SPINS = 1_000;
+
+    private final Shard[] shards;
+    private volatile boolean closed;
+
+    public ShardedLedger(int shards) {
+        this(shards, DEFAULT_RING_CAPACITY);
+    }
+
+    public ShardedLedger(int shards, int ringCapacity) {
+        if (shards <= 0) {
+            throw new IllegalArgumentException("Shard count must be positive: " + shards);
+        }
+        this.shards = new Shard[shards];
+        for (int i = 0; i < shards; i++) {
+            this.shards[i] = new Shard(i, ringCapacity);
+        }
+        for (Shard shard : this.shards) {
+            shard.worker.start();
+        }
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+
+    public CompletableFuture<Void> openAsync(String accountId, long initialBalance) {
+        return call(accountId, shard -> {
+            if (shard.accounts.putIfAbsent(accountId, new Account(accountId, initialBalance)) != null) {
+                throw new IllegalArgumentException("Account already exists: " + accountId);
+            }
+            return null;
+        });
+    }
+
+    public CompletableFuture<Long> balanceOfAsync(String accountId) {
+        return call(accountId, shard -> shard.require(accountId).balance());
+    }
+
+    public CompletableFuture<Void> depositAsync(String accountId, long amount) {
+        requirePositive(amount);
+        return call(accountId, shard -> {
+            Account account = shard.require(accountId);
+            account.add(amount);
+            account.record(Entry.Type.DEPOSIT);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> withdrawAsync(String accountId, long amount) {
+        requirePositive(amount);
+        return call(accountId, shard -> {
+            Account account = shard.require(accountId);
+            account.subtract(amount);
+            account.record(Entry.Type.WITHDRAWAL);
+            return null;
+        });
+    }
+
+    /** Read-only view of the journal as of the moment the shard ran the request. */
+    public CompletableFuture<List<Entry>> statementAsync(String accountId) {
+        return call(accountId, shard -> shard.require(accountId).entries());
+    }
+
+    public CompletableFuture<Void> transferAsync(String fromId, String toId, long amount) {
+        if (fromId.equals(toId)) {
+            throw new IllegalArgumentException("Cannot transfer to the same account: " + fromId);
+        }
+        requirePositive(amount);
+        Shard source = shardOf(fromId);
+        Shard target = shardOf(toId);
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        if (source == target) {
+            submit(source, shard -> {
+                Account from = shard.require(fromId);
+                Account to = shard.require(toId);
+                from.subtract(amount);
+                to.add(amount);
+                from.record(Entry.Type.TRANSFER_OUT);
+                to.record(Entry.Type.TRANSFER_IN);
+                result.complete(null);
+            }, result);
+            return result;
+        }
+        submit(source, shard -> {
+            Account from = shard.require(fromId);
+            from.subtract(amount);
+            from.record(Entry.Type.TRANSFER_OUT);
+            target.send(targetShard -> {
+                Account to = targetShard.accounts.get(toId);
+                if (to != null) {
+                    to.add(amount);
+                    to.record(Entry.Type.TRANSFER_IN);
+                    result.complete(null);
+                    return;
+                }
+                source.send(sourceShard -> {
+                    from.add(amount);
+                    from.record(Entry.Type.TRANSFER_IN);
+                    result.completeExceptionally(new IllegalArgumentException("Unknown account: " + toId));
+                });
+            });
+        }, result);
+        return result;
+    }
+
+    public void open(String accountId, long initialBalance) {
+        await(openAsync(accountId, initialBalance));
+    }
+
+    public long balanceOf(String accountId) {
+        return await(balanceOfAsync(accountId));
+    }
+
+    public void deposit(String accountId, long amount) {
+        await(depositAsync(accountId, amount));
+    }
+
+    public void withdraw(String accountId, long amount) {
+        await(withdrawAsync(accountId, amount));
+    }
+
+    public List<Entry> statement(String accountId) {
+        return await(statementAsync(accountId));
+    }
+
+    public void transfer(String fromId, String toId, long amount) {
+        await(transferAsync(fromId, toId, amount));
+    }
+
+    /**
+     * Stops accepting operations, lets the workers finish everything already accepted, including
+     * the second step of transfers in flight, and stops them. Call it once callers are done: an
+     * operation submitted while it runs is rejected, or may never complete.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (Shard shard : shards) {
+            shard.stopping = true;
+            LockSupport.unpark(shard.worker);
+        }
+        boolean interrupted = false;
+        for (Shard shard : shards) {
+            while (true) {
+                try {
+                    shard.worker.join();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        // a worker may have handed a step to a shard that had already stopped: finish those here,
+        // single-threaded now, until no shard has anything left
+        boolean progressed = true;
+        while (progressed) {
+            progressed = false;
+            for (Shard shard : shards) {
+                progressed |= shard.drain();
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private <T> CompletableFuture<T> call(String accountId, Function<Shard, T> operation) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        submit(shardOf(accountId), shard -> result.complete(operation.apply(shard)), result);
+        return result;
+    }
+
+    private void submit(Shard shard, Step step, CompletableFuture<?> result) {
+        if (closed) {
+            throw new IllegalStateException("Ledger is closed");
+        }
+        Task task = new Task(step, result);
+        while (!shard.ring.offer(task)) {
+            Thread.onSpinWait();  // backpressure: the shard is a full ring behind
+        }
+        shard.wake();
+    }
+
+    private Shard shardOf(String accountId) {
+        return shards[shardIndex(accountId)];
+    }
+
+    int shardIndex(String accountId) {
+        int hash = accountId.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), shards.length);
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static void requirePositive(long amount) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Amount must be positive: " + amount);
+        }
+    }
+
+    /** One step of an operation, run on the owning shard's thread. */
+    @FunctionalInterface
+    private interface Step {
+        void run(Shard shard);
+    }
+
+    // a step submitted by a caller; a failure completes the caller's future
+    private record Task(Step step, CompletableFuture<?> result) {
+    }
+
+    private static final class Shard {
+
+        // owned by the worker thread: no other thread touches these accounts while it runs
+        private final Map<String, Account> accounts = new HashMap<>();
+        private final MpscRingBuffer<Task> ring;
+        // second steps of cross-shard transfers, handed over by other workers
+        private final Queue<Step> inbox = new ConcurrentLinkedQueue<>();
+        private final Thread worker;
+        private volatile boolean sleeping;
+        private volatile boolean stopping;
+
+        Shard(int index, int ringCapacity) {
+            this.ring = new MpscRingBuffer<>(ringCapacity);
+            this.worker = new Thread(this::run, "ledger-shard-" + index);
+            this.worker.setDaemon(true);
+        }
+
+        Account require(String accountId) {
+            Account account = accounts.get(accountId);
+            if (account == null) {
+                throw new IllegalArgumentException("Unknown account: " + accountId);
+            }
+            return account;
+        }
+
+        void send(Step step) {
+            inbox.add(step);
+            wake();
+        }
+
+        void wake() {
+            // pairs with run(): the worker publishes sleeping before its last look at the queues
+            if (sleeping) {
+                LockSupport.unpark(worker);
+            }
+        }
+
+        private void run() {
+            int idle = 0;
+            while (true) {
+                if (drain()) {
+                    idle = 0;
+                } else if (stopping) {
+                    return;
+                } else if (++idle < IDLE_SPINS) {
+                    Thread.onSpinWait();
+                } else {
+                    sleeping = true;
+                    if (inbox.isEmpty() && ring.size() == 0 && !stopping) {
+                        LockSupport.park(this);
+                    }
+                    sleeping = false;
+                    idle = 0;
+                }
+            }
+        }
+
+        // runs everything queued right now; returns whether there was anything
+        boolean drain() {
+            boolean any = false;
+            for (Step step = inbox.poll(); step != null; step = inbox.poll()) {
+                step.run(this);
+                any = true;
+            }
+            for (Task task = ring.poll(); task != null; task = ring.poll()) {
+                try {
+                    task.step().run(this);
+                } catch (RuntimeException e) {
+                    task.result().completeExceptionally(e);
+                }
+                any = true;
+            }
+            return any;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.ledger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Compact binary account snapshot ({@code snapshot-<startLsn>.bin}). Layout is
+ * {@code [int magic][int version][long startLsn]}, then one
+ * {@code [short idLength][id][long balance][long nextSequence][long lastLsn]} per account, then
+ * {@code [short -1][long count][int crc32c]}, with the CRC taken over everything before it.
+ *
+ * <p>This is a fuzzy checkpoint: accounts are captured one at a time while writers keep running.
+ * It is still exact, because each account is captured together with the LSN of the last log
+ * record applied to it. Recovery replays the log from {@code startLsn + 1} and skips, per
+ * account, every record at or below that account's {@code lastLsn}.
+ */
+final class Snapshot {
+
+    private static final int MAGIC = 0x4C534E50;  // "LSNP"
+    private static final int VERSION = 1;
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".bin";
+    // the newest two are kept, so a damaged newest file still leaves something to recover from
+    static final int RETAINED = 2;
+
+    @FunctionalInterface
+    interface AccountSink {
+        void accept(String accountId, long balance, long nextSequence, long lastLsn);
+    }
+
+    private Snapshot() {
+    }
+
+    /** Streams one snapshot to a temp file; {@link #commit()} fsyncs it and renames it into place. */
+    static final class Writer implements AutoCloseable {
+
+        private final Path directory;
+        private final long startLsn;
+        private final Path temp;
+        private final CRC32C crc = new CRC32C();
+        private final DataOutputStream out;
+        private long count;
+        private boolean committed;
+
+        Writer(Path directory, long startLsn) throws IOException {
+            this.directory = directory;
+            this.startLsn = startLsn;
+            this.temp = directory.resolve(fileName(startLsn) + ".tmp");
+            OutputStream file = Files.newOutputStream(temp,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            this.out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(file, crc), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(startLsn);
+        }
+
+        void add(String accountId, long balance, long nextSequence, long lastLsn) throws IOException {
+            byte[] id = accountId.getBytes(StandardCharsets.UTF_8);
+            out.writeShort(id.length);
+            out.write(id);
+            out.writeLong(balance);
+            out.writeLong(nextSequence);
+            out.writeLong(lastLsn);
+            count++;
+        }
+
+        /** Makes the snapshot visible atomically and durably, then drops snapshots older than the retained ones. */
+        void commit() throws IOException {
+            out.writeShort(-1);
+            out.writeLong(count);
+            out.flush();
+            out.writeInt((int) crc.getValue());
+            out.close();
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            Files.move(temp, directory.resolve(fileName(startLsn)), StandardCopyOption.ATOMIC_MOVE);
+            forceDirectory(directory);
+            committed = true;
+
+            List<Path> snapshots = files(directory);
+            for (int i = 0; i < snapshots.size() - RETAINED; i++) {
+                Files.deleteIfExists(snapshots.get(i));
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!committed) {
+                out.close();
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    /**
+     * Loads the newest intact snapshot into {@code sink} and returns its start LSN, or 0 when there
+     * is none. The file is read in a single pass and checked at the end. A damaged file, such as a
+     * torn copy or a bad CRC, is reported through {@code discard}, so the caller can drop what it
+     * received, and the next older snapshot is tried.
+     */
+    static long loadNewest(Path directory, AccountSink sink, Runnable discard) throws IOException {
+        List<Path> snapshots = files(directory);
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            long startLsn = read(snapshots.get(i), sink);
+            if (startLsn >= 0) {
+                return startLsn;
+            }
+            discard.run();
+        }
+        return 0;
+    }
+
+    /**
+     * Start LSN of the oldest retained snapshot. Log records up to it are never needed again.
+     * Returns 0 when there is no snapshot.
+     */
+    static long oldestRetainedLsn(Path directory) throws IOException {
+        List<Path> snapshots = files(directory);
+        return snapshots.isEmpty() ? 0 : startLsnOf(snapshots.get(0));
+    }
+
+    // returns the start LSN, or -1 when the file is damaged
+    private static long read(Path file, AccountSink sink) throws IOException {
+        CRC32C crc = new CRC32C();
+        try (DataInputStream in = new DataInputStream(new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(file), 1 << 16), crc))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return -1;
+            }
+            long startLsn = in.readLong();
+            long count = 0;
+            for (short length = in.readShort(); length >= 0; length = in.readShort()) {
+                String id = new String(in.readNBytes(length), StandardCharsets.UTF_8);
+                sink.accept(id, in.readLong(), in.readLong(), in.readLong());
+                count++;
+            }
+            if (in.readLong() != count) {
+                return -1;
+            }
+            int expected = (int) crc.getValue();
+            return in.readInt() == expected ? startLsn : -1;
+        } catch (EOFException truncated) {
+            return -1;
+        }
+    }
+
+    private static List<Path> files(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> snapshots = new ArrayList<>(files
+                    .filter(f -> f.getFileName().toString().startsWith(PREFIX)
+                            && f.getFileName().toString().endsWith(SUFFIX))
+                    .toList());
+            snapshots.sort(null);  // zero-padded start LSN: lexical order is age order
+            return snapshots;
+        }
+    }
+
+    private static String fileName(long startLsn) {
+        return String.format("%s%020d%s", PREFIX, startLsn, SUFFIX);
+    }
+
+    private static long startLsnOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    static void forceDirectory(Path directory) {
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException unsupported) {
+            // some platforms cannot open a directory for sync; the file contents are already forced
+        }
+    }
+}
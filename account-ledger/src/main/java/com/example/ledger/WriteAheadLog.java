@@ -0,0 +1,566 @@
+package com.example.ledger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only operation log in fixed-size, memory-mapped segment files named after the first LSN
+ * they hold ({@code wal-00000000000000000001.log}). Records are
+ * {@code [int bodyLength][int crc32c(body)][body]}, with a body of
+ * {@code [long lsn][byte op][long amount][short len][id bytes]([short len][other id bytes])}.
+ * A batch is a single record, so it is logged whole or not at all. Its body is
+ * {@code [long firstLsn][byte op][long legCount]} followed by one
+ * {@code [short len][from id bytes][short len][to id bytes][long amount]} per leg, and it takes
+ * one LSN per leg, starting at {@code firstLsn}.
+ * A zero length marks the unused tail of a segment. A bad CRC marks a torn write, and recovery
+ * truncates the log there.
+ *
+ * <p>Appends are serialised on this object and only copy bytes into the mapping. Durability comes
+ * from forcing the mapping. Depending on {@link Durability}, the caller forces it or a single
+ * group-commit thread does. The committer forces everything appended since its last pass in one
+ * go, so concurrent callers share each fsync. A force always covers a prefix of the log, and a
+ * segment is fully forced before the next one is started. A durable record therefore never
+ * depends on a lost one.
+ */
+final class WriteAheadLog implements AutoCloseable {
+
+    static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+
+    private static final int HEADER_BYTES = 8;
+    private static final String PREFIX = "wal-";
+    private static final String SUFFIX = ".log";
+
+    enum Op {
+        OPEN,
+        DEPOSIT,
+        WITHDRAWAL,
+        TRANSFER,
+        BATCH
+    }
+
+    /**
+     * Receives every intact record, in LSN order, while the log is opened. A batch arrives as one
+     * TRANSFER per leg, each with its own LSN.
+     */
+    @FunctionalInterface
+    interface Replay {
+        void apply(long lsn, Op op, String accountId, String otherAccountId, long amount);
+    }
+
+    private static final Op[] OPS = Op.values();
+
+    private final Path directory;
+    private final Durability durability;
+    private final int segmentSize;
+    private final Thread committer;
+
+    // guarded by this
+    private Segment current;
+    private long appendedLsn;
+    private boolean closed;
+
+    private final Object forceLock = new Object();
+    private final Object durableLock = new Object();
+    private volatile long durableLsn;
+    private volatile Throwable failure;
+
+    private WriteAheadLog(Path directory, Durability durability, int segmentSize, Segment current, long lastLsn) {
+        this.directory = directory;
+        this.durability = durability;
+        this.segmentSize = segmentSize;
+        this.current = current;
+        this.appendedLsn = lastLsn;
+        this.durableLsn = lastLsn;
+        if (durability == Durability.PER_OP) {
+            this.committer = null;
+        } else {
+            this.committer = new Thread(this::commitLoop, "ledger-wal-committer");
+            this.committer.setDaemon(true);
+            this.committer.start();
+        }
+    }
+
+    /**
+     * Replays every intact record after {@code fromLsn} in {@code directory} into {@code replay},
+     * truncates a torn tail and returns the log positioned for appending after the last good record.
+     * Segments that end at or before {@code fromLsn} are skipped without being read.
+     */
+    static WriteAheadLog open(Path directory, Durability durability, int segmentSize, long fromLsn, Replay replay)
+            throws IOException {
+        Files.createDirectories(directory);
+        List<Path> segments = segmentFiles(directory);
+        long lastLsn = segments.isEmpty() ? fromLsn : firstLsnOf(segments.get(0)) - 1;
+        if (lastLsn > fromLsn) {
+            throw new IllegalStateException("Write-ahead log starts after LSN " + fromLsn + "; records are missing");
+        }
+        Segment tail = null;
+        for (int i = 0; i < segments.size(); i++) {
+            Path file = segments.get(i);
+            long firstLsn = firstLsnOf(file);
+            if (firstLsn != lastLsn + 1) {
+                throw new IllegalStateException("Write-ahead log gap before " + file.getFileName());
+            }
+            boolean last = i == segments.size() - 1;
+            if (!last && firstLsnOf(segments.get(i + 1)) <= fromLsn + 1) {
+                lastLsn = firstLsnOf(segments.get(i + 1)) - 1;  // wholly covered by the snapshot
+                continue;
+            }
+            Segment segment = Segment.map(file, Math.max(segmentSize, (int) Files.size(file)));
+            Scan scan = scan(segment.buffer, lastLsn, fromLsn, replay);
+            lastLsn = scan.lastLsn;
+            if (scan.torn && !last) {
+                throw new IllegalStateException("Corrupt write-ahead log segment " + file.getFileName());
+            }
+            if (last) {
+                // drop whatever a crash left after the last good record, so it can never be misread later
+                byte[] zeros = new byte[64 << 10];
+                for (int p = scan.end; p < segment.buffer.capacity(); p += zeros.length) {
+                    segment.buffer.put(p, zeros, 0, Math.min(zeros.length, segment.buffer.capacity() - p));
+                }
+                segment.buffer.force();
+                segment.position = scan.end;
+                segment.forced = scan.end;
+                tail = segment;
+            } else {
+                segment.close();
+            }
+        }
+        if (lastLsn < fromLsn) {
+            throw new IllegalStateException("Write-ahead log ends at LSN " + lastLsn + ", before the snapshot at " + fromLsn);
+        }
+        if (tail == null) {
+            tail = Segment.create(directory, lastLsn + 1, segmentSize);
+        }
+        return new WriteAheadLog(directory, durability, segmentSize, tail, lastLsn);
+    }
+
+    /** Appends one record and returns its LSN. Does not wait for durability: see {@link #commit}. */
+    long append(Op op, String accountId, String otherAccountId, long amount) {
+        byte[] id = accountId.getBytes(StandardCharsets.UTF_8);
+        byte[] other = otherAccountId == null ? null : otherAccountId.getBytes(StandardCharsets.UTF_8);
+        int bodyLength = 8 + 1 + 8 + 2 + id.length + (other == null ? 0 : 2 + other.length);
+        int recordLength = HEADER_BYTES + bodyLength;
+        if (recordLength > segmentSize) {
+            throw new IllegalArgumentException("Record larger than a log segment: " + recordLength + " bytes");
+        }
+
+        synchronized (this) {
+            requireWritable();
+            if (current.buffer.capacity() - current.position < recordLength) {
+                roll();
+            }
+            long lsn = appendedLsn + 1;
+            MappedByteBuffer buffer = current.buffer;
+            int body = current.position + HEADER_BYTES;
+            int p = body;
+            buffer.putLong(p, lsn);
+            p += 8;
+            buffer.put(p, (byte) op.ordinal());
+            p += 1;
+            buffer.putLong(p, amount);
+            p += 8;
+            p = putId(buffer, p, id);
+            if (other != null) {
+                putId(buffer, p, other);
+            }
+            CRC32C crc = new CRC32C();
+            crc.update(buffer.slice(body, bodyLength));
+            buffer.putInt(current.position + 4, (int) crc.getValue());
+            buffer.putInt(current.position, bodyLength);
+
+            current.position += recordLength;
+            appendedLsn = lsn;
+            if (committer != null) {
+                notifyAll();
+            }
+            return lsn;
+        }
+    }
+
+    /**
+     * Appends the legs as one record and returns the LSN of the last leg; the legs take consecutive
+     * LSNs ending there. Does not wait for durability: see {@link #commit}.
+     */
+    long appendBatch(List<Leg> legs) {
+        byte[][] ids = new byte[legs.size() * 2][];
+        int bodyLength = 8 + 1 + 8;
+        for (int i = 0; i < legs.size(); i++) {
+            Leg leg = legs.get(i);
+            ids[2 * i] = leg.fromId().getBytes(StandardCharsets.UTF_8);
+            ids[2 * i + 1] = leg.toId().getBytes(StandardCharsets.UTF_8);
+            bodyLength += 2 + ids[2 * i].length + 2 + ids[2 * i + 1].length + 8;
+        }
+        int recordLength = HEADER_BYTES + bodyLength;
+        if (recordLength > segmentSize) {
+            throw new IllegalArgumentException("Record larger than a log segment: " + recordLength + " bytes");
+        }
+
+        synchronized (this) {
+            requireWritable();
+            if (current.buffer.capacity() - current.position < recordLength) {
+                roll();
+            }
+            long firstLsn = appendedLsn + 1;
+            MappedByteBuffer buffer = current.buffer;
+            int body = current.position + HEADER_BYTES;
+            int p = body;
+            buffer.putLong(p, firstLsn);
+            p += 8;
+            buffer.put(p, (byte) Op.BATCH.ordinal());
+            p += 1;
+            buffer.putLong(p, legs.size());
+            p += 8;
+            for (int i = 0; i < legs.size(); i++) {
+                p = putId(buffer, p, ids[2 * i]);
+                p = putId(buffer, p, ids[2 * i + 1]);
+                buffer.putLong(p, legs.get(i).amount());
+                p += 8;
+            }
+            CRC32C crc = new CRC32C();
+            crc.update(buffer.slice(body, bodyLength));
+            buffer.putInt(current.position + 4, (int) crc.getValue());
+            buffer.putInt(current.position, bodyLength);
+
+            current.position += recordLength;
+            appendedLsn = firstLsn + legs.size() - 1;
+            if (committer != null) {
+                notifyAll();
+            }
+            return appendedLsn;
+        }
+    }
+
+    /** Returns once record {@code lsn} is as durable as the configured {@link Durability} promises. */
+    void commit(long lsn) {
+        switch (durability) {
+            case PER_OP -> forceUpTo(lsn);
+            case BATCHED -> awaitDurable(lsn);
+            case ASYNC -> requireHealthy();
+        }
+    }
+
+    long durableLsn() {
+        return durableLsn;
+    }
+
+    synchronized long lastAppendedLsn() {
+        return appendedLsn;
+    }
+
+    /** Forces everything appended so far, whatever the durability policy. */
+    void sync() {
+        forceUpTo(lastAppendedLsn());
+    }
+
+    /**
+     * Deletes closed segments whose records are all at or below {@code lsn}. The segment being
+     * appended to is always kept.
+     */
+    void deleteSegmentsThrough(long lsn) throws IOException {
+        List<Path> segments = segmentFiles(directory);
+        for (int i = 0; i < segments.size() - 1; i++) {
+            if (firstLsnOf(segments.get(i + 1)) > lsn + 1) {
+                break;
+            }
+            Files.deleteIfExists(segments.get(i));
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notifyAll();
+        }
+        if (committer != null) {
+            boolean interrupted = false;
+            while (committer.isAlive()) {
+                try {
+                    committer.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            long lastLsn = appendedLsn;
+            current.forceAll();
+            current.close();
+            publishDurable(lastLsn);
+        }
+    }
+
+    // --- group commit --------------------------------------------------------------------------
+
+    private void commitLoop() {
+        long flushedLsn = durableLsn;
+        while (true) {
+            Segment segment;
+            int upTo;
+            long target;
+            synchronized (this) {
+                while (!closed && appendedLsn == flushedLsn) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        // only close() stops the committer
+                    }
+                }
+                if (appendedLsn == flushedLsn) {
+                    return;
+                }
+                segment = current;
+                upTo = current.position;
+                target = appendedLsn;
+            }
+            try {
+                segment.force(upTo);
+            } catch (RuntimeException e) {
+                fail(e);
+                return;
+            }
+            flushedLsn = target;
+            publishDurable(target);
+        }
+    }
+
+    private void forceUpTo(long lsn) {
+        if (durableLsn >= lsn) {
+            return;
+        }
+        synchronized (forceLock) {
+            if (durableLsn >= lsn) {
+                return;  // someone else's force already covered us
+            }
+            Segment segment;
+            int upTo;
+            long target;
+            synchronized (this) {
+                segment = current;
+                upTo = current.position;
+                target = appendedLsn;
+            }
+            try {
+                segment.force(upTo);
+            } catch (RuntimeException e) {
+                fail(e);
+                throw e;
+            }
+            publishDurable(target);
+        }
+    }
+
+    private void awaitDurable(long lsn) {
+        if (durableLsn >= lsn) {
+            return;
+        }
+        boolean interrupted = false;
+        synchronized (durableLock) {
+            while (durableLsn < lsn) {
+                requireHealthy();
+                try {
+                    durableLock.wait();
+                } catch (InterruptedException e) {
+                    // the operation is already applied; report it only once it is durable
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void publishDurable(long lsn) {
+        synchronized (durableLock) {
+            if (lsn > durableLsn) {
+                durableLsn = lsn;
+            }
+            durableLock.notifyAll();
+        }
+    }
+
+    private void fail(Throwable cause) {
+        failure = cause;
+        synchronized (durableLock) {
+            durableLock.notifyAll();
+        }
+    }
+
+    // --- segments ------------------------------------------------------------------------------
+
+    // called under this: the full segment is forced before any record lands in the next one
+    private void roll() {
+        current.forceAll();
+        current.close();
+        try {
+            current = Segment.create(directory, appendedLsn + 1, segmentSize);
+        } catch (IOException e) {
+            UncheckedIOException error = new UncheckedIOException("Cannot roll write-ahead log segment", e);
+            fail(error);
+            throw error;
+        }
+    }
+
+    private void requireWritable() {
+        if (closed) {
+            throw new IllegalStateException("Ledger is closed");
+        }
+        requireHealthy();
+    }
+
+    private void requireHealthy() {
+        Throwable cause = failure;
+        if (cause != null) {
+            throw new IllegalStateException("Write-ahead log failed; ledger is read-only", cause);
+        }
+    }
+
+    private static int putId(MappedByteBuffer buffer, int position, byte[] id) {
+        buffer.putShort(position, (short) id.length);
+        buffer.put(position + 2, id);
+        return position + 2 + id.length;
+    }
+
+    private static Scan scan(MappedByteBuffer buffer, long lastLsn, long fromLsn, Replay replay) {
+        int position = 0;
+        while (buffer.capacity() - position >= HEADER_BYTES) {
+            int bodyLength = buffer.getInt(position);
+            if (bodyLength == 0) {
+                return new Scan(position, lastLsn, false);
+            }
+            if (bodyLength < 0 || bodyLength > buffer.capacity() - position - HEADER_BYTES) {
+                return new Scan(position, lastLsn, true);
+            }
+            int body = position + HEADER_BYTES;
+            CRC32C crc = new CRC32C();
+            crc.update(buffer.slice(body, bodyLength));
+            if ((int) crc.getValue() != buffer.getInt(position + 4) || buffer.getLong(body) != lastLsn + 1) {
+                return new Scan(position, lastLsn, true);
+            }
+            long lsn = buffer.getLong(body);
+            Op op = OPS[buffer.get(body + 8)];
+            long amount = buffer.getLong(body + 9);
+            int p = body + 17;
+            if (op == Op.BATCH) {
+                // amount is the leg count
+                for (long leg = 0; leg < amount; leg++) {
+                    String from = readId(buffer, p);
+                    p += 2 + buffer.getShort(p);
+                    String to = readId(buffer, p);
+                    p += 2 + buffer.getShort(p);
+                    if (lsn + leg > fromLsn) {
+                        replay.apply(lsn + leg, Op.TRANSFER, from, to, buffer.getLong(p));
+                    }
+                    p += 8;
+                }
+                lsn += amount - 1;
+            } else if (lsn > fromLsn) {
+                String id = readId(buffer, p);
+                p += 2 + buffer.getShort(p);
+                String other = op == Op.TRANSFER ? readId(buffer, p) : null;
+                replay.apply(lsn, op, id, other, amount);
+            }
+            lastLsn = lsn;
+            position = body + bodyLength;
+        }
+        return new Scan(position, lastLsn, false);
+    }
+
+    private static String readId(MappedByteBuffer buffer, int position) {
+        byte[] bytes = new byte[buffer.getShort(position)];
+        buffer.get(position + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static List<Path> segmentFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> segments = new ArrayList<>(files
+                    .filter(f -> f.getFileName().toString().startsWith(PREFIX)
+                            && f.getFileName().toString().endsWith(SUFFIX))
+                    .toList());
+            // zero-padded first LSN: lexical order is log order
+            segments.sort(null);
+            return segments;
+        }
+    }
+
+    private static long firstLsnOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    private record Scan(int end, long lastLsn, boolean torn) {}
+
+    /** One mapped segment file. {@code position} is guarded by the log; force state by this. */
+    private static final class Segment {
+
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        int position;
+        private int forced;
+
+        private Segment(FileChannel channel, MappedByteBuffer buffer) {
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        static Segment create(Path directory, long firstLsn, int size) throws IOException {
+            Path file = directory.resolve(String.format("%s%020d%s", PREFIX, firstLsn, SUFFIX));
+            Segment segment = map(file, size);
+            // make the new file's name durable too, or recovery could miss the whole segment
+            try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+                dir.force(true);
+            } catch (IOException unsupported) {
+                // some platforms cannot open a directory; the file itself is still forced on roll
+            }
+            return segment;
+        }
+
+        static Segment map(Path file, int size) throws IOException {
+            FileChannel channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                return new Segment(channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        synchronized void force(int upTo) {
+            if (upTo > forced) {
+                buffer.force(forced, upTo - forced);
+                forced = upTo;
+            }
+        }
+
+        synchronized void forceAll() {
+            force(position);
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
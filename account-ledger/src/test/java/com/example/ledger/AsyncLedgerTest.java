@@ -0,0 +1,195 @@
+package com.example.ledger;
+
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AsyncLedgerTest {
+
+    @Test
+    void depositWithdrawAndTransferMoveMoney() {
+        Ledger ledger = new Ledger();
+        ledger.open("acc-1", 1_000);
+        ledger.open("acc-2", 200);
+        AsyncLedger async = new AsyncLedger(ledger);
+
+        async.deposit("acc-1", 250).join();
+        async.withdraw("acc-1", 50).join();
+        async.transfer("acc-1", "acc-2", 300).join();
+        async.transfer("acc-2", "acc-1", 100).join();
+
+        assertEquals(1_000, (long) async.balanceOf("acc-1").join());
+        assertEquals(400, ledger.balanceOf("acc-2"));
+        assertEquals(List.of(
+                new Entry(0, Entry.Type.DEPOSIT, 250, 1_250),
+                new Entry(1, Entry.Type.WITHDRAWAL, 50, 1_200),
+                new Entry(2, Entry.Type.TRANSFER_OUT, 300, 900),
+                new Entry(3, Entry.Type.TRANSFER_IN, 100, 1_000)
+        ), ledger.statement("acc-1"));
+    }
+
+    @Test
+    void eachCallerGetsItsOwnFailure() {
+        Ledger ledger = new Ledger();
+        ledger.open("acc-1", 100);
+        AsyncLedger async = new AsyncLedger(ledger);
+
+        assertThrows(IllegalArgumentException.class, () -> async.deposit("acc-1", 0));
+        assertThrows(IllegalArgumentException.class, () -> async.transfer("acc-1", "acc-1", 10));
+        CompletionException unknown = assertThrows(CompletionException.class,
+                () -> async.deposit("missing", 10).join());
+        assertInstanceOf(IllegalArgumentException.class, unknown.getCause());
+
+        CompletableFuture<Void> first = async.withdraw("acc-1", 60);
+        CompletableFuture<Void> overdraft = async.withdraw("acc-1", 60);
+        CompletableFuture<Void> last = async.withdraw("acc-1", 40);
+
+        first.join();
+        last.join();
+        CompletionException failure = assertThrows(CompletionException.class, overdraft::join);
+        assertInstanceOf(IllegalStateException.class, failure.getCause());
+        assertEquals(0, ledger.balanceOf("acc-1"));
+        assertEquals(2, ledger.statement("acc-1").size());
+    }
+
+    @RepeatedTest(3)
+    void concurrentCallsOnAHotAccountAreAllApplied() throws InterruptedException {
+        Ledger ledger = new Ledger();
+        ledger.open("hot", 0);
+        AsyncLedger async = new AsyncLedger(ledger);
+        int threads = 8;
+        int perThread = 5_000;
+        CountDownLatch startGate = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        try {
+            List<Future<List<CompletableFuture<Void>>>> submitted = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                submitted.add(executor.submit(() -> {
+                    startGate.await();
+                    List<CompletableFuture<Void>> own = new ArrayList<>();
+                    for (int i = 0; i < perThread; i++) {
+                        own.add(async.deposit("hot", 2));
+                        own.add(async.withdraw("hot", 1));
+                    }
+                    return own;
+                }));
+            }
+            startGate.countDown();
+            for (Future<List<CompletableFuture<Void>>> own : submitted) {
+                futures.addAll(own.get(30, TimeUnit.SECONDS));
+            }
+        } catch (ExecutionException | TimeoutException e) {
+            throw new AssertionError(e);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // a withdrawal may overtake its own deposit and find the account empty; count what happened
+        long withdrawn = 0;
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                futures.get(i).join();
+                withdrawn += i % 2;
+            } catch (CompletionException insufficientFunds) {
+                assertInstanceOf(IllegalStateException.class, insufficientFunds.getCause());
+            }
+        }
+        long deposits = (long) threads * perThread;
+        assertEquals(deposits * 2 - withdrawn, ledger.balanceOf("hot"));
+        assertEquals(deposits + withdrawn, ledger.statement("hot").size());
+    }
+
+    @RepeatedTest(3)
+    void crossingTransfersNeitherDeadlockNorLoseMoney() throws InterruptedException {
+        int accounts = 4;
+        Ledger ledger = new Ledger();
+        for (int i = 0; i < accounts; i++) {
+            ledger.open("acc-" + i, 10_000);
+        }
+        AsyncLedger async = new AsyncLedger(ledger);
+        CountDownLatch startGate = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int t = 0; t < 8; t++) {
+                executor.submit(() -> {
+                    startGate.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    List<CompletableFuture<Void>> own = new ArrayList<>();
+                    for (int i = 0; i < 2_000; i++) {
+                        int from = random.nextInt(accounts);
+                        int to = (from + 1 + random.nextInt(accounts - 1)) % accounts;
+                        own.add(async.transfer("acc-" + from, "acc-" + to, random.nextLong(1, 100)));
+                    }
+                    for (CompletableFuture<Void> future : own) {
+                        try {
+                            future.join();
+                        } catch (CompletionException insufficientFunds) {
+                            // fine -- conservation is what we assert
+                        }
+                    }
+                    return null;
+                });
+            }
+            startGate.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long total = 0;
+        for (int i = 0; i < accounts; i++) {
+            total += ledger.balanceOf("acc-" + i);
+        }
+        assertEquals(accounts * 10_000L, total);
+    }
+
+    @Test
+    void combinedDebitsAndReadsSeeStripedCreditsThatLandMidBatch() {
+        AtomicReference<AsyncLedger> async = new AtomicReference<>();
+        List<CompletableFuture<?>> queuedMidBatch = new ArrayList<>();
+        Ledger ledger = new Ledger() {
+            @Override
+            long log(WriteAheadLog.Op op, Account account, Account other, long amount) {
+                if (op == WriteAheadLog.Op.DEPOSIT && queuedMidBatch.isEmpty()) {
+                    // the batch holds the account's lock: this credit goes to a stripe and returns, then
+                    // the debit and the read queue up behind the deposit in the same batch
+                    deposit("striped", 10);
+                    queuedMidBatch.add(async.get().withdraw("striped", 11));
+                    queuedMidBatch.add(async.get().balanceOf("striped"));
+                }
+                return super.log(op, account, other, amount);
+            }
+        };
+        ledger.open("striped", 0);
+        ledger.stripe("striped");
+        async.set(new AsyncLedger(ledger));
+
+        async.get().deposit("striped", 1).join();
+
+        assertEquals(2, queuedMidBatch.size());
+        queuedMidBatch.get(0).join();
+        assertEquals(0L, queuedMidBatch.get(1).join());
+        assertEquals(0, ledger.balanceOf("striped"));
+        assertEquals(3, ledger.statement("striped").size());
+    }
+}
@@ -0,0 +1,256 @@
+package com.example.ledger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DurableLedgerTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void balancesAndStatementsSurviveRestartUnderEveryPolicy() throws IOException {
+        for (Durability durability : Durability.values()) {
+            Path dir = directory.resolve(durability.name());
+            try (Ledger ledger = Ledger.durable(dir, durability)) {
+                ledger.open("acc-1", 1_000);
+                ledger.open("acc-2", 0);
+                ledger.deposit("acc-1", 500);
+                ledger.withdraw("acc-1", 200);
+                ledger.transfer("acc-1", "acc-2", 300);
+            }
+
+            try (Ledger reopened = Ledger.durable(dir, durability)) {
+                assertEquals(1_000, reopened.balanceOf("acc-1"), durability.name());
+                assertEquals(300, reopened.balanceOf("acc-2"), durability.name());
+                assertEquals(List.of(
+                        new Entry(0, Entry.Type.DEPOSIT, 500, 1_500),
+                        new Entry(1, Entry.Type.WITHDRAWAL, 200, 1_300),
+                        new Entry(2, Entry.Type.TRANSFER_OUT, 300, 1_000)
+                ), reopened.statement("acc-1"));
+            }
+        }
+    }
+
+    @Test
+    void rejectedOperationsAreNotLogged() throws IOException {
+        try (Ledger ledger = Ledger.durable(directory, Durability.PER_OP)) {
+            ledger.open("acc-1", 100);
+            ledger.open("acc-2", 0);
+            assertThrows(IllegalStateException.class, () -> ledger.withdraw("acc-1", 101));
+            assertThrows(IllegalStateException.class, () -> ledger.transfer("acc-1", "acc-2", 101));
+            assertThrows(IllegalArgumentException.class, () -> ledger.open("acc-1", 5));
+        }
+
+        // a logged rejection would make the replay itself throw
+        try (Ledger reopened = Ledger.durable(directory, Durability.PER_OP)) {
+            assertEquals(100, reopened.balanceOf("acc-1"));
+            assertEquals(List.of(), reopened.statement("acc-1"));
+        }
+    }
+
+    @Test
+    void replayCrossesSegmentBoundaries() throws IOException {
+        int segmentSize = 4 << 10;
+        try (Ledger ledger = Ledger.durable(directory, Durability.BATCHED, segmentSize)) {
+            ledger.open("acc-1", 0);
+            for (int i = 0; i < 1_000; i++) {
+                ledger.deposit("acc-1", 1);
+            }
+        }
+        assertTrue(segmentCount() > 1, "expected the log to roll");
+
+        try (Ledger reopened = Ledger.durable(directory, Durability.BATCHED, segmentSize)) {
+            assertEquals(1_000, reopened.balanceOf("acc-1"));
+            reopened.deposit("acc-1", 1);
+        }
+        try (Ledger reopened = Ledger.durable(directory, Durability.BATCHED, segmentSize)) {
+            assertEquals(1_001, reopened.balanceOf("acc-1"));
+        }
+    }
+
+    @Test
+    void tornTailIsTruncatedAndLoggingResumes() throws IOException {
+        try (Ledger ledger = Ledger.durable(directory, Durability.PER_OP)) {
+            ledger.open("acc-1", 0);
+            ledger.deposit("acc-1", 10);
+            ledger.deposit("acc-1", 20);
+        }
+        // corrupt one byte inside the last record, as a crash mid-write would
+        Path segment = lastSegment();
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            long lastRecordEnd = endOfRecords(file);
+            file.seek(lastRecordEnd - 1);
+            int last = file.read();
+            file.seek(lastRecordEnd - 1);
+            file.write(last ^ 0xFF);
+        }
+
+        try (Ledger recovered = Ledger.durable(directory, Durability.PER_OP)) {
+            assertEquals(10, recovered.balanceOf("acc-1"));
+            recovered.deposit("acc-1", 5);
+        }
+        try (Ledger recovered = Ledger.durable(directory, Durability.PER_OP)) {
+            assertEquals(15, recovered.balanceOf("acc-1"));
+        }
+    }
+
+    @Test
+    void batchIsReplayedWholeAfterRestart() throws IOException {
+        try (Ledger ledger = Ledger.durable(directory, Durability.PER_OP)) {
+            ledger.open("acc-1", 100);
+            ledger.open("acc-2", 0);
+            ledger.open("acc-3", 0);
+            ledger.applyBatch(List.of(new Leg("acc-1", "acc-2", 70), new Leg("acc-2", "acc-3", 20)));
+            ledger.snapshot();
+            ledger.applyBatch(List.of(new Leg("acc-3", "acc-1", 5), new Leg("acc-1", "acc-2", 1)));
+            ledger.deposit("acc-3", 1);
+        }
+
+        try (Ledger reopened = Ledger.durable(directory, Durability.PER_OP)) {
+            assertEquals(34, reopened.balanceOf("acc-1"));
+            assertEquals(51, reopened.balanceOf("acc-2"));
+            assertEquals(16, reopened.balanceOf("acc-3"));
+            assertEquals(List.of(
+                    new Entry(1, Entry.Type.TRANSFER_OUT, 5, 15),
+                    new Entry(2, Entry.Type.DEPOSIT, 1, 16)
+            ), reopened.statement("acc-3"));
+        }
+    }
+
+    @Test
+    void handlesAreLookedUpAgainAfterRestart() throws IOException {
+        try (Ledger ledger = Ledger.durable(directory, Durability.PER_OP)) {
+            ledger.open("acc-1", 10);
+            ledger.snapshot();
+            int second = ledger.open("acc-2", 20);
+            ledger.deposit(second, 5);
+        }
+
+        try (Ledger reopened = Ledger.durable(directory, Durability.PER_OP)) {
+            int first = reopened.handleOf("acc-1");
+            int second = reopened.handleOf("acc-2");
+            reopened.transfer(second, first, 25);
+            assertEquals(35, reopened.balanceOf(first));
+            assertEquals(0, reopened.balanceOf(second));
+        }
+    }
+
+    @Test
+    void stripedCreditsSurviveSnapshotAndRestart() throws IOException {
+        try (Ledger ledger = Ledger.durable(directory, Durability.BATCHED)) {
+            ledger.open("merchant", 0);
+            ledger.open("customer", 1_000);
+            ledger.stripe("merchant");
+            ledger.deposit("merchant", 10);
+            ledger.transfer("customer", "merchant", 20);
+            ledger.snapshot();
+            ledger.deposit("merchant", 5);
+        }
+
+        try (Ledger reopened = Ledger.durable(directory, Durability.BATCHED)) {
+            assertEquals(35, reopened.balanceOf("merchant"));
+            assertEquals(980, reopened.balanceOf("customer"));
+            assertEquals(List.of(new Entry(2, Entry.Type.DEPOSIT, 5, 35)), reopened.statement("merchant"));
+        }
+    }
+
+    @Test
+    void closedLedgerRejectsWrites() throws IOException {
+        Ledger ledger = Ledger.durable(directory, Durability.ASYNC);
+        ledger.open("acc-1", 10);
+        ledger.close();
+
+        assertThrows(IllegalStateException.class, () -> ledger.deposit("acc-1", 1));
+        assertEquals(10, ledger.balanceOf("acc-1"));
+    }
+
+    @Test
+    void moneyIsConservedAcrossRestartAfterConcurrentTransfers() throws Exception {
+        List<String> accountIds = List.of("acc-0", "acc-1", "acc-2", "acc-3");
+        long[] balances = new long[accountIds.size()];
+        try (Ledger ledger = Ledger.durable(directory, Durability.BATCHED, 64 << 10)) {
+            accountIds.forEach(id -> ledger.open(id, 10_000));
+            CountDownLatch startGate = new CountDownLatch(1);
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            try {
+                for (int t = 0; t < 8; t++) {
+                    executor.submit(() -> {
+                        startGate.await();
+                        ThreadLocalRandom random = ThreadLocalRandom.current();
+                        for (int i = 0; i < 500; i++) {
+                            String from = accountIds.get(random.nextInt(accountIds.size()));
+                            String to = accountIds.get(random.nextInt(accountIds.size()));
+                            if (from.equals(to)) {
+                                continue;
+                            }
+                            try {
+                                ledger.transfer(from, to, random.nextLong(1, 100));
+                            } catch (IllegalStateException insufficientFunds) {
+                                // fine -- conservation is what we assert
+                            }
+                        }
+                        return null;
+                    });
+                }
+                startGate.countDown();
+                executor.shutdown();
+                assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+            } finally {
+                executor.shutdownNow();
+            }
+            for (int i = 0; i < balances.length; i++) {
+                balances[i] = ledger.balanceOf(accountIds.get(i));
+            }
+        }
+
+        try (Ledger reopened = Ledger.durable(directory, Durability.BATCHED, 64 << 10)) {
+            for (int i = 0; i < balances.length; i++) {
+                assertEquals(balances[i], reopened.balanceOf(accountIds.get(i)));
+            }
+            assertEquals(40_000, accountIds.stream().mapToLong(reopened::balanceOf).sum());
+        }
+    }
+
+    private long segmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(f -> f.getFileName().toString().startsWith("wal-")).count();
+        }
+    }
+
+    private Path lastSegment() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(f -> f.getFileName().toString().startsWith("wal-")).sorted()
+                    .reduce((a, b) -> b).orElseThrow();
+        }
+    }
+
+    // walks [int length][int crc][body] records up to the zero-length terminator
+    private static long endOfRecords(RandomAccessFile file) throws IOException {
+        long position = 0;
+        while (true) {
+            file.seek(position);
+            int length = file.readInt();
+            if (length == 0) {
+                return position;
+            }
+            position += 8 + length;
+        }
+    }
+}
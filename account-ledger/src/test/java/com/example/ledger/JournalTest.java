@@ -0,0 +1,112 @@
+package com.example.ledger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void amountsAreDerivedFromBalanceMovements() {
+        Journal journal = new Journal(1_000);
+
+        journal.append(Entry.Type.DEPOSIT, 1_500);
+        journal.append(Entry.Type.WITHDRAWAL, 1_300);
+        journal.append(Entry.Type.TRANSFER_OUT, 1_000);
+        journal.append(Entry.Type.TRANSFER_IN, 1_250);
+
+        assertEquals(List.of(
+                new Entry(0, Entry.Type.DEPOSIT, 500, 1_500),
+                new Entry(1, Entry.Type.WITHDRAWAL, 200, 1_300),
+                new Entry(2, Entry.Type.TRANSFER_OUT, 300, 1_000),
+                new Entry(3, Entry.Type.TRANSFER_IN, 250, 1_250)
+        ), journal.view());
+    }
+
+    @Test
+    void entriesSurviveGrowthAcrossChunkBoundaries() {
+        int entries = 3 * Journal.CHUNK_SIZE + 17;
+        Journal journal = new Journal(0);
+        for (int i = 1; i <= entries; i++) {
+            journal.append(Entry.Type.DEPOSIT, i);
+        }
+
+        List<Entry> view = journal.view();
+        assertEquals(entries, view.size());
+        for (int i = 0; i < entries; i++) {
+            assertEquals(new Entry(i, Entry.Type.DEPOSIT, 1, i + 1), view.get(i));
+        }
+    }
+
+    @Test
+    void viewIsASnapshotThatLaterAppendsDoNotChange() {
+        Journal journal = new Journal(0);
+        journal.append(Entry.Type.DEPOSIT, 10);
+        List<Entry> before = journal.view();
+
+        // enough appends to regrow the first chunk and open new ones under the old view
+        for (int i = 0; i < 2 * Journal.CHUNK_SIZE; i++) {
+            journal.append(Entry.Type.DEPOSIT, 11 + i);
+        }
+
+        assertEquals(List.of(new Entry(0, Entry.Type.DEPOSIT, 10, 10)), before);
+        assertEquals(2 * Journal.CHUNK_SIZE + 1, journal.view().size());
+    }
+
+    @Test
+    void viewIsReadOnly() {
+        Journal journal = new Journal(0);
+        journal.append(Entry.Type.DEPOSIT, 10);
+
+        assertThrows(UnsupportedOperationException.class,
+                () -> journal.view().add(new Entry(1, Entry.Type.DEPOSIT, 1, 11)));
+        assertThrows(IndexOutOfBoundsException.class, () -> journal.view().get(1));
+    }
+
+    @Test
+    void spilledChunksReadBackExactly() throws IOException {
+        Account account = new Account("acc-1", 0);
+        SplittableRandom random = new SplittableRandom(7);
+        try (JournalArchive archive = new JournalArchive(directory, 100)) {
+            account.lock();
+            try {
+                account.tierJournal(archive);
+                for (int i = 0; i < 3 * Journal.CHUNK_SIZE + 50; i++) {
+                    // amounts from one cent to far past a varint byte, in both directions
+                    long amount = 1L << random.nextInt(40);
+                    if (account.balance() >= amount && random.nextBoolean()) {
+                        account.subtract(amount);
+                        account.record(Entry.Type.WITHDRAWAL);
+                    } else {
+                        account.add(amount);
+                        account.record(Entry.Type.TRANSFER_IN);
+                    }
+                }
+            } finally {
+                account.unlock();
+            }
+            List<Entry> hot = account.entries();
+            List<Entry> expected = new ArrayList<>(hot);
+
+            // each append that filled a chunk past retention queued a spill
+            archive.awaitIdle();
+
+            // everything but the newest 100 entries and the chunk they start in
+            assertEquals(2, account.journal().coldChunks());
+            assertEquals(expected, account.entries());
+            assertEquals(expected, hot);
+            assertEquals(expected.subList(4_000, 4_200), account.entries().subList(4_000, 4_200));
+        }
+    }
+}
@@ -2,8 +2,15 @@ package com.example.ledger;
 
 import org.junit.jupiter.api.RepeatedTest;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.ExecutorService;
@@ -85,6 +92,46 @@ class LedgerConcurrencyTest {
         assertEquals(2_000_000, ledger.balanceOf("acc-A") + ledger.balanceOf("acc-B"));
     }
 
+    @RepeatedTest(3)
+    void crossingTransfersByIdAndByHandleDoNotDeadlock() throws InterruptedException {
+        int transfersPerThread = 5_000;
+        Ledger ledger = new Ledger();
+        // opened in reverse id order, so handle order and id order disagree
+        int b = ledger.open("acc-B", 1_000_000);
+        int a = ledger.open("acc-A", 1_000_000);
+        CountDownLatch startGate = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            executor.submit(() -> {
+                startGate.await();
+                for (int i = 0; i < transfersPerThread; i++) {
+                    ledger.transfer("acc-A", "acc-B", 1);
+                }
+                return null;
+            });
+            executor.submit(() -> {
+                startGate.await();
+                for (int i = 0; i < transfersPerThread; i++) {
+                    ledger.transfer(b, a, 1);
+                }
+                return null;
+            });
+            startGate.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS),
+                    "crossing transfers did not finish -- deadlock");
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(2_000_000, ledger.balanceOf(a) + ledger.balanceOf(b));
+    }
+
     @Test
     void moneyIsConservedUnderConcurrentRandomTransfers() throws InterruptedException {
         List<String> accountIds = List.of("acc-0", "acc-1", "acc-2", "acc-3");
@@ -123,4 +170,373 @@ class LedgerConcurrencyTest {
         long total = accountIds.stream().mapToLong(ledger::balanceOf).sum();
         assertEquals(40_000, total);
     }
+
+    @RepeatedTest(3)
+    void batchesAndTransfersOnOverlappingAccountsConserveMoney() throws InterruptedException {
+        List<String> accountIds = List.of("acc-0", "acc-1", "acc-2", "acc-3", "acc-4", "acc-5");
+        Ledger ledger = new Ledger();
+        accountIds.forEach(id -> ledger.open(id, 10_000));
+        CountDownLatch startGate = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int t = 0; t < 8; t++) {
+                boolean batches = t % 2 == 0;
+                executor.submit(() -> {
+                    startGate.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < 1_000; i++) {
+                        String from = accountIds.get(random.nextInt(accountIds.size()));
+                        String to = accountIds.get(random.nextInt(accountIds.size()));
+                        String third = accountIds.get(random.nextInt(accountIds.size()));
+                        if (from.equals(to) || to.equals(third)) {
+                            continue;
+                        }
+                        try {
+                            if (batches) {
+                                ledger.applyBatch(List.of(
+                                        new Leg(from, to, random.nextLong(1, 100)),
+                                        new Leg(to, third, random.nextLong(1, 100))));
+                            } else {
+                                ledger.transfer(from, to, random.nextLong(1, 100));
+                            }
+                        } catch (IllegalStateException insufficientFunds) {
+                            // fine -- conservation is what we assert
+                        }
+                    }
+                    return null;
+                });
+            }
+            startGate.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS), "batches did not finish -- deadlock");
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(60_000, accountIds.stream().mapToLong(ledger::balanceOf).sum());
+    }
+
+    @RepeatedTest(3)
+    void stripedCreditsAreNeitherLostNorOverdrawn() throws InterruptedException {
+        int threads = 8;
+        int creditsPerThread = 5_000;
+        Ledger ledger = new Ledger();
+        ledger.open("merchant", 0);
+        ledger.open("customer", Long.MAX_VALUE / 2);
+        ledger.stripe("merchant");
+        CountDownLatch startGate = new CountDownLatch(1);
+        long[] withdrawn = new long[1];
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        try {
+            for (int t = 0; t < threads; t++) {
+                boolean transfers = t % 2 == 0;
+                executor.submit(() -> {
+                    startGate.await();
+                    for (int i = 0; i < creditsPerThread; i++) {
+                        if (transfers) {
+                            ledger.transfer("customer", "merchant", 1);
+                        } else {
+                            ledger.deposit("merchant", 1);
+                        }
+                    }
+                    return null;
+                });
+            }
+            // a concurrent debit keeps draining what the credits put in, never more
+            executor.submit(() -> {
+                startGate.await();
+                for (int i = 0; i < creditsPerThread; i++) {
+                    try {
+                        ledger.withdraw("merchant", 3);
+                        withdrawn[0] += 3;
+                    } catch (IllegalStateException insufficientFunds) {
+                        // fine -- the credits have not caught up yet
+                    }
+                }
+                return null;
+            });
+            startGate.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long credited = (long) threads * creditsPerThread;
+        assertEquals(credited - withdrawn[0], ledger.balanceOf("merchant"));
+        List<Entry> statement = ledger.statement("merchant");
+        assertEquals(credited + withdrawn[0] / 3, statement.size());
+        assertEquals(ledger.balanceOf("merchant"), statement.get(statement.size() - 1).balanceAfter());
+        for (Entry entry : statement) {
+            assertTrue(entry.balanceAfter() >= 0, "overdrawn at " + entry);
+        }
+    }
+
+    @RepeatedTest(3)
+    void auditsSeeConservedTotalsWhileMoneyMoves() throws InterruptedException {
+        List<String> accountIds = List.of("merchant", "acc-1", "acc-2", "acc-3");
+        Ledger ledger = new Ledger();
+        accountIds.forEach(id -> ledger.open(id, 10_000));
+        ledger.stripe("merchant");
+        AsyncLedger async = new AsyncLedger(ledger);
+        CountDownLatch startGate = new CountDownLatch(1);
+        CountDownLatch movers = new CountDownLatch(8);
+        List<String> failures = new CopyOnWriteArrayList<>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(9);
+        try {
+            for (int t = 0; t < 8; t++) {
+                int kind = t % 4;
+                executor.submit(() -> {
+                    startGate.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    try {
+                        moveMoney(ledger, async, accountIds, kind, random);
+                    } finally {
+                        movers.countDown();
+                    }
+                    return null;
+                });
+            }
+            executor.submit(() -> {
+                startGate.await();
+                while (movers.getCount() > 0) {
+                    long total = ledger.totalBalance();
+                    Map<String, Long> balances = ledger.balances();
+                    long sum = balances.values().stream().mapToLong(Long::longValue).sum();
+                    if (total != 40_000 || sum != 40_000 || balances.values().stream().anyMatch(b -> b < 0)) {
+                        failures.add("total " + total + ", balances " + balances);
+                    }
+                }
+                return null;
+            });
+            startGate.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(List.of(), failures);
+        assertEquals(40_000, ledger.totalBalance());
+    }
+
+    @RepeatedTest(3)
+    void evictionsAndReloadsNeitherLoseNorDuplicateMoney(@TempDir Path directory)
+            throws InterruptedException, IOException {
+        List<String> accountIds = List.of("merchant", "acc-1", "acc-2", "acc-3");
+        Ledger ledger = new Ledger();
+        accountIds.forEach(id -> ledger.open(id, 10_000));
+        ledger.stripe("merchant");
+        ledger.evictIdleAccounts(directory, 0, Duration.ofMillis(1));
+        AsyncLedger async = new AsyncLedger(ledger);
+        CountDownLatch startGate = new CountDownLatch(1);
+        CountDownLatch movers = new CountDownLatch(8);
+        List<String> failures = new CopyOnWriteArrayList<>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(9);
+        try {
+            for (int t = 0; t < 8; t++) {
+                int kind = t % 4;
+                executor.submit(() -> {
+                    startGate.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    try {
+                        moveMoney(ledger, async, accountIds, kind, random);
+                    } finally {
+                        movers.countDown();
+                    }
+                    return null;
+                });
+            }
+            // sweeps back to back, on top of the background ones, so accounts keep going in and out
+            executor.submit(() -> {
+                startGate.await();
+                while (movers.getCount() > 0) {
+                    ledger.evictIdle();
+                    long total = ledger.totalBalance();
+                    if (total != 40_000) {
+                        failures.add("total " + total);
+                    }
+                }
+                return null;
+            });
+            startGate.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(List.of(), failures);
+        assertTrue(ledger.evictionStats().reloads() > 0);
+        long total = 0;
+        for (String id : accountIds) {
+            long balance = ledger.balanceOf(id);
+            total += balance;
+            // every write reached the one live copy: the journal ends at the balance
+            List<Entry> statement = ledger.statement(id);
+            assertEquals(statement.get(statement.size() - 1).balanceAfter(), balance);
+        }
+        assertEquals(40_000, total);
+        ledger.close();
+    }
+
+    @RepeatedTest(5)
+    void lockFreeConcurrentDepositsDoNotLoseUpdates() throws InterruptedException {
+        int threads = 8;
+        int depositsPerThread = 1_000;
+        LockFreeLedger ledger = new LockFreeLedger();
+        ledger.open("acc-1", 0);
+        CountDownLatch startGate = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int t = 0; t < threads; t++) {
+                executor.submit(() -> {
+                    startGate.await();
+                    for (int i = 0; i < depositsPerThread; i++) {
+                        ledger.deposit("acc-1", 1);
+                    }
+                    return null;
+                });
+            }
+            startGate.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals((long) threads * depositsPerThread, ledger.balanceOf("acc-1"));
+        // every CAS that won appended exactly one entry, and the last one reports the final balance
+        List<Entry> statement = ledger.statement("acc-1");
+        assertEquals(threads * depositsPerThread, statement.size());
+        assertEquals(ledger.balanceOf("acc-1"), statement.get(statement.size() - 1).balanceAfter());
+    }
+
+    @RepeatedTest(3)
+    void lockFreeMoneyIsConservedUnderConcurrentRandomTransfers() throws InterruptedException {
+        List<String> accountIds = List.of("acc-0", "acc-1", "acc-2", "acc-3");
+        LockFreeLedger ledger = new LockFreeLedger();
+        accountIds.forEach(id -> ledger.open(id, 10_000));
+        CountDownLatch startGate = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int t = 0; t < 8; t++) {
+                executor.submit(() -> {
+                    startGate.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < 2_000; i++) {
+                        String from = accountIds.get(random.nextInt(accountIds.size()));
+                        String to = accountIds.get(random.nextInt(accountIds.size()));
+                        if (from.equals(to)) {
+                            continue;
+                        }
+                        try {
+                            ledger.transfer(from, to, random.nextLong(1, 100));
+                        } catch (IllegalStateException insufficientFunds) {
+                            // fine -- conservation is what we assert
+                        }
+                    }
+                    return null;
+                });
+            }
+            startGate.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long total = accountIds.stream().mapToLong(ledger::balanceOf).sum();
+        assertEquals(40_000, total);
+        for (String id : accountIds) {
+            assertTrue(ledger.balanceOf(id) >= 0, "overdrawn: " + id);
+        }
+    }
+
+    @RepeatedTest(3)
+    void lockFreeTransfersAreNeverSeenHalfApplied() throws InterruptedException {
+        LockFreeLedger ledger = new LockFreeLedger();
+        ledger.open("acc-1", 1_000_000);
+        ledger.open("acc-2", 0);
+        CountDownLatch startGate = new CountDownLatch(1);
+        CountDownLatch movers = new CountDownLatch(6);
+        List<String> failures = new CopyOnWriteArrayList<>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int t = 0; t < 6; t++) {
+                // deposits contend with the transfers' credits for acc-2, which is where a transfer could stall
+                boolean transfers = t < 4;
+                executor.submit(() -> {
+                    startGate.await();
+                    try {
+                        for (int i = 0; i < 20_000; i++) {
+                            if (transfers) {
+                                ledger.transfer("acc-1", "acc-2", 1);
+                            } else {
+                                ledger.deposit("acc-2", 1);
+                            }
+                        }
+                    } finally {
+                        movers.countDown();
+                    }
+                    return null;
+                });
+            }
+            // money only leaves acc-1 for acc-2: read in that order, a transfer that has left acc-1 must
+            // already have reached acc-2
+            for (int r = 0; r < 2; r++) {
+                executor.submit(() -> {
+                    startGate.await();
+                    while (movers.getCount() > 0) {
+                        long source = ledger.balanceOf("acc-1");
+                        long target = ledger.balanceOf("acc-2");
+                        if (source + target < 1_000_000) {
+                            failures.add(source + " + " + target);
+                        }
+                    }
+                    return null;
+                });
+            }
+            startGate.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(List.of(), failures);
+        assertEquals(920_000, ledger.balanceOf("acc-1"));
+        assertEquals(120_000, ledger.balanceOf("acc-2"));
+        assertEquals(120_000, ledger.statement("acc-2").size());
+    }
+
+    // transfers, batches, combined transfers and striped credits, all inside the given accounts
+    private static void moveMoney(Ledger ledger, AsyncLedger async, List<String> accountIds, int kind,
+                                  ThreadLocalRandom random) {
+        for (int i = 0; i < 3_000; i++) {
+            String from = accountIds.get(random.nextInt(accountIds.size()));
+            String to = accountIds.get(random.nextInt(accountIds.size()));
+            if (from.equals(to)) {
+                continue;
+            }
+            long amount = random.nextLong(1, 100);
+            try {
+                switch (kind) {
+                    case 0 -> ledger.transfer(from, to, amount);
+                    case 1 -> ledger.applyBatch(List.of(new Leg(from, to, amount), new Leg(to, from, 1)));
+                    case 2 -> async.transfer(from, to, amount).join();
+                    default -> ledger.transfer(from, "merchant".equals(from) ? to : "merchant", amount);
+                }
+            } catch (IllegalStateException | CompletionException insufficientFunds) {
+                // fine -- conservation is what we assert
+            }
+        }
+    }
 }
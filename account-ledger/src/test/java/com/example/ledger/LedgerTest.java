@@ -1,11 +1,20 @@
 package com.example.ledger;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class LedgerTest {
 
@@ -114,12 +123,12 @@ class LedgerTest {
         ledger.transfer("acc-1", "acc-2", 300);
 
         assertEquals(List.of(
-                new Entry(Entry.Type.DEPOSIT, 500, 1_500),
-                new Entry(Entry.Type.WITHDRAWAL, 200, 1_300),
-                new Entry(Entry.Type.TRANSFER_OUT, 300, 1_000)
+                new Entry(0, Entry.Type.DEPOSIT, 500, 1_500),
+                new Entry(1, Entry.Type.WITHDRAWAL, 200, 1_300),
+                new Entry(2, Entry.Type.TRANSFER_OUT, 300, 1_000)
         ), ledger.statement("acc-1"));
         assertEquals(List.of(
-                new Entry(Entry.Type.TRANSFER_IN, 300, 300)
+                new Entry(0, Entry.Type.TRANSFER_IN, 300, 300)
         ), ledger.statement("acc-2"));
     }
 
@@ -129,4 +138,317 @@ class LedgerTest {
 
         assertThrows(IllegalArgumentException.class, () -> ledger.statement("missing"));
     }
+
+    @Test
+    void statementPagesResumeFromTheNextSequence() {
+        Ledger ledger = new Ledger();
+        ledger.open("acc-1", 0);
+        for (int i = 1; i <= 5; i++) {
+            ledger.deposit("acc-1", i);
+        }
+
+        List<Entry> first = ledger.statement("acc-1", 0, 2);
+        List<Entry> second = ledger.statement("acc-1", first.get(first.size() - 1).sequence() + 1, 2);
+        List<Entry> last = ledger.statement("acc-1", 4, 2);
+
+        assertEquals(List.of(
+                new Entry(0, Entry.Type.DEPOSIT, 1, 1),
+                new Entry(1, Entry.Type.DEPOSIT, 2, 3)
+        ), first);
+        assertEquals(List.of(
+                new Entry(2, Entry.Type.DEPOSIT, 3, 6),
+                new Entry(3, Entry.Type.DEPOSIT, 4, 10)
+        ), second);
+        assertEquals(List.of(new Entry(4, Entry.Type.DEPOSIT, 5, 15)), last);
+        assertEquals(List.of(), ledger.statement("acc-1", 5, 2));
+        assertThrows(IllegalArgumentException.class, () -> ledger.statement("acc-1", -1, 2));
+        assertThrows(IllegalArgumentException.class, () -> ledger.statement("acc-1", 0, 0));
+    }
+
+    @Test
+    void latestEntriesAreNewestFirst() {
+        Ledger ledger = new Ledger();
+        ledger.open("acc-1", 1_000);
+        ledger.deposit("acc-1", 100);
+        ledger.withdraw("acc-1", 50);
+        ledger.deposit("acc-1", 10);
+
+        assertEquals(List.of(
+                new Entry(2, Entry.Type.DEPOSIT, 10, 1_060),
+                new Entry(1, Entry.Type.WITHDRAWAL, 50, 1_050)
+        ), ledger.latestEntries("acc-1", 2));
+        assertEquals(3, ledger.latestEntries("acc-1", 10).size());
+    }
+
+    @Test
+    void statementIteratorDoesNotBlockWritersWhileConsumed() throws Exception {
+        Ledger ledger = new Ledger();
+        ledger.open("acc-1", 0);
+        ledger.deposit("acc-1", 1);
+        ledger.deposit("acc-1", 2);
+        ledger.deposit("acc-1", 3);
+
+        Iterator<Entry> iterator = ledger.statementIterator("acc-1", 1);
+        assertEquals(new Entry(1, Entry.Type.DEPOSIT, 2, 3), iterator.next());
+        // a writer on another thread completes while the iterator is half consumed
+        Thread writer = new Thread(() -> ledger.deposit("acc-1", 4));
+        writer.start();
+        writer.join(5_000);
+        assertFalse(writer.isAlive(), "deposit blocked behind an open iterator");
+
+        assertEquals(new Entry(2, Entry.Type.DEPOSIT, 3, 6), iterator.next());
+        assertFalse(iterator.hasNext(), "iterator reads the journal as of its creation");
+        assertEquals(10, ledger.balanceOf("acc-1"));
+    }
+
+    @Test
+    void batchFansOutFromOneAccount() {
+        Ledger ledger = new Ledger();
+        ledger.open("payroll", 10_000);
+        List<Leg> legs = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            ledger.open("emp-" + i, 0);
+            legs.add(new Leg("payroll", "emp-" + i, 100));
+        }
+
+        ledger.applyBatch(legs);
+
+        assertEquals(0, ledger.balanceOf("payroll"));
+        assertEquals(100, ledger.balanceOf("emp-42"));
+        assertEquals(100, ledger.statement("payroll").size());
+        assertEquals(new Entry(99, Entry.Type.TRANSFER_OUT, 100, 0), ledger.statement("payroll").get(99));
+        assertEquals(List.of(new Entry(0, Entry.Type.TRANSFER_IN, 100, 100)), ledger.statement("emp-42"));
+    }
+
+    @Test
+    void batchLegsMayUseMoneyReceivedEarlierInTheBatch() {
+        Ledger ledger = new Ledger();
+        ledger.open("acc-1", 100);
+        ledger.open("acc-2", 0);
+        ledger.open("acc-3", 0);
+
+        ledger.applyBatch(List.of(new Leg("acc-1", "acc-2", 100), new Leg("acc-2", "acc-3", 60)));
+
+        assertEquals(0, ledger.balanceOf("acc-1"));
+        assertEquals(40, ledger.balanceOf("acc-2"));
+        assertEquals(60, ledger.balanceOf("acc-3"));
+    }
+
+    @Test
+    void rejectedBatchChangesNothing() {
+        Ledger ledger = new Ledger();
+        ledger.open("acc-1", 100);
+        ledger.open("acc-2", 0);
+
+        // the net effect on acc-2 is fine, but its first leg would overdraw it
+        assertThrows(IllegalStateException.class, () -> ledger.applyBatch(List.of(
+                new Leg("acc-1", "acc-2", 50),
+                new Leg("acc-2", "acc-1", 80),
+                new Leg("acc-1", "acc-2", 30))));
+        assertThrows(IllegalArgumentException.class, () -> ledger.applyBatch(List.of(
+                new Leg("acc-1", "acc-2", 10),
+                new Leg("acc-1", "missing", 10))));
+        assertThrows(IllegalArgumentException.class, () -> ledger.applyBatch(List.of(
+                new Leg("acc-1", "acc-2", 10),
+                new Leg("acc-2", "acc-2", 5))));
+        assertThrows(IllegalArgumentException.class, () -> ledger.applyBatch(List.of(
+                new Leg("acc-1", "acc-2", 0))));
+
+        assertEquals(100, ledger.balanceOf("acc-1"));
+        assertEquals(0, ledger.balanceOf("acc-2"));
+        assertEquals(List.of(), ledger.statement("acc-1"));
+    }
+
+    @Test
+    void handlesReachTheSameAccountsAsIds() {
+        Ledger ledger = new Ledger();
+        int first = ledger.open("acc-1", 1_000);
+        int second = ledger.open("acc-2", 0);
+
+        ledger.deposit(first, 250);
+        ledger.withdraw(first, 50);
+        ledger.transfer(first, second, 300);
+
+        assertEquals(900, ledger.balanceOf("acc-1"));
+        assertEquals(300, ledger.balanceOf(second));
+        assertEquals(first, ledger.handleOf("acc-1"));
+        assertEquals(3, ledger.statement("acc-1").size());
+    }
+
+    @Test
+    void unknownOrRejectedHandlesThrow() {
+        Ledger ledger = new Ledger();
+        int handle = ledger.open("acc-1", 100);
+        assertThrows(IllegalArgumentException.class, () -> ledger.open("acc-1", 0));
+
+        assertThrows(IllegalArgumentException.class, () -> ledger.balanceOf(handle + 1));
+        assertThrows(IllegalArgumentException.class, () -> ledger.balanceOf(-1));
+        assertThrows(IllegalArgumentException.class, () -> ledger.deposit(1 << 20, 1));
+        assertThrows(IllegalArgumentException.class, () -> ledger.transfer(handle, handle, 1));
+        assertThrows(IllegalStateException.class, () -> ledger.withdraw(handle, 101));
+        assertEquals(100, ledger.balanceOf(handle));
+    }
+
+    @Test
+    void stripedAccountStaysExact() {
+        Ledger ledger = new Ledger();
+        ledger.open("merchant", 0);
+        ledger.open("customer", 1_000);
+        ledger.stripe("merchant");
+
+        ledger.deposit("merchant", 100);
+        ledger.transfer("customer", "merchant", 250);
+
+        assertEquals(350, ledger.balanceOf("merchant"));
+        assertThrows(IllegalStateException.class, () -> ledger.withdraw("merchant", 351));
+        ledger.withdraw("merchant", 350);
+        assertEquals(0, ledger.balanceOf("merchant"));
+        assertEquals(List.of(
+                new Entry(0, Entry.Type.DEPOSIT, 100, 100),
+                new Entry(1, Entry.Type.TRANSFER_IN, 250, 350),
+                new Entry(2, Entry.Type.WITHDRAWAL, 350, 0)
+        ), ledger.statement("merchant"));
+        assertEquals(750, ledger.balanceOf("customer"));
+    }
+
+    @Test
+    void auditReadsEveryBalanceIncludingPendingCredits() {
+        Ledger ledger = new Ledger();
+        ledger.open("merchant", 0);
+        ledger.open("customer", 1_000);
+        ledger.stripe("merchant");
+        ledger.transfer("customer", "merchant", 250);
+        ledger.deposit("merchant", 100);
+
+        assertEquals(1_100, ledger.totalBalance());
+        assertEquals(Map.of("merchant", 350L, "customer", 750L), ledger.balances());
+
+        ledger.withdraw("merchant", 50);
+        ledger.open("late", 10);
+        assertEquals(1_060, ledger.totalBalance());
+        assertEquals(Map.of("merchant", 300L, "customer", 750L, "late", 10L), ledger.balances());
+    }
+
+    @Test
+    void tieredStatementsStillReturnTheWholeHistory(@TempDir Path directory) throws IOException {
+        int deposits = 2 * Journal.CHUNK_SIZE + 5;
+        try (Ledger ledger = new Ledger()) {
+            ledger.open("acc-1", 0);
+            ledger.tierJournals(directory, 10);
+            for (int i = 1; i <= deposits; i++) {
+                ledger.deposit("acc-1", i);
+            }
+            ledger.awaitJournalSpills();
+
+            List<Entry> statement = ledger.statement("acc-1");
+            assertEquals(deposits, statement.size());
+            long balance = 0;
+            for (int i = 0; i < deposits; i++) {
+                balance += i + 1;
+                assertEquals(new Entry(i, Entry.Type.DEPOSIT, i + 1, balance), statement.get(i));
+            }
+            // a page straddling the cold and hot tiers
+            List<Entry> page = ledger.statement("acc-1", 2 * Journal.CHUNK_SIZE - 2, 4);
+            assertEquals(statement.subList(2 * Journal.CHUNK_SIZE - 2, 2 * Journal.CHUNK_SIZE + 2), page);
+            assertEquals(statement.get(0), ledger.latestEntries("acc-1", deposits).get(deposits - 1));
+        }
+    }
+
+    @Test
+    void evictedAccountsReloadWithBalanceAndWholeStatement(@TempDir Path directory) throws IOException {
+        int deposits = Journal.CHUNK_SIZE + 5;
+        try (Ledger ledger = new Ledger()) {
+            int handle = ledger.open("acc-1", 0);
+            ledger.open("acc-2", 500);
+            ledger.open("merchant", 0);
+            ledger.stripe("merchant");
+            ledger.tierJournals(directory.resolve("journals"), 10);
+            for (int i = 1; i <= deposits; i++) {
+                ledger.deposit("acc-1", i);
+            }
+            ledger.transfer("acc-2", "merchant", 200);
+            ledger.awaitJournalSpills();
+            List<Entry> before = List.copyOf(ledger.statement("acc-1"));
+            long total = ledger.totalBalance();
+            ledger.evictIdleAccounts(directory.resolve("dormant"), 0, Duration.ofHours(1));
+
+            // striped accounts stay resident
+            assertEquals(2, ledger.evictIdle());
+            EvictionStats stats = ledger.evictionStats();
+            assertEquals(1, stats.residentAccounts());
+            assertEquals(2, stats.dormantAccounts());
+            // audits and handle lookups read dormant accounts where they are
+            assertEquals(total, ledger.totalBalance());
+            assertEquals(Map.of("acc-1", total - 500, "acc-2", 300L, "merchant", 200L), ledger.balances());
+            assertEquals(handle, ledger.handleOf("acc-1"));
+            assertEquals(0, ledger.evictionStats().reloads());
+
+            assertEquals(before, ledger.statement("acc-1"));
+            ledger.deposit(handle, 7);
+            assertEquals(total - 500 + 7, ledger.balanceOf("acc-1"));
+            assertEquals(new Entry(deposits, Entry.Type.DEPOSIT, 7, total - 500 + 7),
+                    ledger.latestEntries("acc-1", 1).get(0));
+            ledger.transfer("acc-2", "acc-1", 300);
+            assertEquals(0, ledger.balanceOf("acc-2"));
+            stats = ledger.evictionStats();
+            assertEquals(3, stats.residentAccounts());
+            assertEquals(0, stats.dormantAccounts());
+            assertEquals(2, stats.reloads());
+            assertFalse(stats.maxReloadLatency().isNegative());
+        }
+    }
+
+    @Test
+    void reloadedAccountsLeaveTheirSpaceToLaterEvictions(@TempDir Path directory) throws IOException {
+        try (Ledger ledger = new Ledger()) {
+            List<String> accountIds = List.of("acc-1", "acc-2", "acc-3");
+            accountIds.forEach(id -> ledger.open(id, 100));
+            ledger.evictIdleAccounts(directory, 0, Duration.ofHours(1));
+            assertEquals(3, ledger.evictIdle());
+            long storeBytes = ledger.evictionStats().storeBytes();
+            assertTrue(storeBytes > 0);
+
+            for (int round = 0; round < 10; round++) {
+                accountIds.forEach(ledger::balanceOf);
+                assertEquals(3, ledger.evictIdle());
+            }
+            assertEquals(storeBytes, ledger.evictionStats().storeBytes());
+
+            // a record that outgrew its extent moves to a larger one; the small one is left for others
+            for (int i = 0; i < 10; i++) {
+                ledger.deposit("acc-1", 1);
+            }
+            assertEquals(1, ledger.evictIdle());
+            storeBytes = ledger.evictionStats().storeBytes();
+            ledger.open("acc-4", 5);
+            assertEquals(1, ledger.evictIdle());
+            assertEquals(storeBytes, ledger.evictionStats().storeBytes());
+
+            assertEquals(110, ledger.balanceOf("acc-1"));
+            assertEquals(5, ledger.balanceOf("acc-4"));
+            assertEquals(10, ledger.statement("acc-1").size());
+        }
+    }
+
+    @Test
+    void accountsUsedSinceTheLastSweepStayResident(@TempDir Path directory) throws IOException {
+        try (Ledger ledger = new Ledger()) {
+            List<String> accountIds = List.of("acc-1", "acc-2", "acc-3");
+            accountIds.forEach(id -> ledger.open(id, 100));
+            ledger.evictIdleAccounts(directory, 2, Duration.ofHours(1));
+            assertEquals(1, ledger.evictIdle());
+            List<String> resident = accountIds.stream().filter(ledger::resident).toList();
+            assertEquals(2, resident.size());
+
+            ledger.deposit(resident.get(0), 1);
+            ledger.open("acc-4", 0);
+            assertEquals(1, ledger.evictIdle());
+
+            assertTrue(ledger.resident(resident.get(0)));
+            assertFalse(ledger.resident(resident.get(1)));
+            assertTrue(ledger.resident("acc-4"));
+            assertEquals(101, ledger.balanceOf(resident.get(0)));
+            assertEquals(100, ledger.balanceOf(resident.get(1)));
+        }
+    }
 }
@@ -0,0 +1,62 @@
+package com.example.ledger;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LockFreeLedgerTest {
+
+    @Test
+    void depositWithdrawAndTransferMoveMoney() {
+        LockFreeLedger ledger = new LockFreeLedger();
+        ledger.open("acc-1", 1_000);
+        ledger.open("acc-2", 200);
+
+        ledger.deposit("acc-1", 250);
+        ledger.withdraw("acc-1", 50);
+        ledger.transfer("acc-1", "acc-2", 300);
+
+        assertEquals(900, ledger.balanceOf("acc-1"));
+        assertEquals(500, ledger.balanceOf("acc-2"));
+    }
+
+    @Test
+    void rejectedOperationsLeaveBalancesUntouched() {
+        LockFreeLedger ledger = new LockFreeLedger();
+        ledger.open("acc-1", 100);
+        ledger.open("acc-2", 200);
+
+        assertThrows(IllegalStateException.class, () -> ledger.withdraw("acc-1", 101));
+        assertThrows(IllegalStateException.class, () -> ledger.transfer("acc-1", "acc-2", 101));
+        assertThrows(IllegalArgumentException.class, () -> ledger.deposit("acc-1", 0));
+        assertThrows(IllegalArgumentException.class, () -> ledger.transfer("acc-1", "acc-1", 10));
+        assertThrows(IllegalArgumentException.class, () -> ledger.transfer("acc-1", "missing", 10));
+        assertThrows(IllegalArgumentException.class, () -> ledger.open("acc-1", 0));
+        assertEquals(100, ledger.balanceOf("acc-1"));
+        assertEquals(200, ledger.balanceOf("acc-2"));
+        assertEquals(List.of(), ledger.statement("acc-1"));
+    }
+
+    @Test
+    void statementRecordsOperationsInOrder() {
+        LockFreeLedger ledger = new LockFreeLedger();
+        ledger.open("acc-1", 1_000);
+        ledger.open("acc-2", 0);
+
+        ledger.deposit("acc-1", 500);
+        ledger.withdraw("acc-1", 200);
+        ledger.transfer("acc-1", "acc-2", 300);
+
+        assertEquals(List.of(
+                new Entry(0, Entry.Type.DEPOSIT, 500, 1_500),
+                new Entry(1, Entry.Type.WITHDRAWAL, 200, 1_300),
+                new Entry(2, Entry.Type.TRANSFER_OUT, 300, 1_000)
+        ), ledger.statement("acc-1"));
+        assertEquals(List.of(
+                new Entry(0, Entry.Type.TRANSFER_IN, 300, 300)
+        ), ledger.statement("acc-2"));
+    }
+}
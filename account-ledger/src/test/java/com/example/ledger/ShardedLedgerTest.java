@@ -0,0 +1,148 @@
+package com.example.ledger;
+
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardedLedgerTest {
+
+    @Test
+    void depositWithdrawAndTransferMoveMoney() {
+        try (ShardedLedger ledger = new ShardedLedger(4)) {
+            ledger.open("acc-1", 1_000);
+            ledger.open("acc-2", 200);
+
+            ledger.deposit("acc-1", 250);
+            ledger.withdraw("acc-1", 50);
+            ledger.transfer("acc-1", "acc-2", 300);
+
+            assertEquals(900, ledger.balanceOf("acc-1"));
+            assertEquals(500, ledger.balanceOf("acc-2"));
+        }
+    }
+
+    @Test
+    void rejectedOperationsLeaveBalancesUntouched() {
+        try (ShardedLedger ledger = new ShardedLedger(4)) {
+            ledger.open("acc-1", 100);
+            ledger.open("acc-2", 200);
+
+            assertThrows(IllegalStateException.class, () -> ledger.withdraw("acc-1", 101));
+            assertThrows(IllegalStateException.class, () -> ledger.transfer("acc-1", "acc-2", 101));
+            assertThrows(IllegalArgumentException.class, () -> ledger.deposit("acc-1", 0));
+            assertThrows(IllegalArgumentException.class, () -> ledger.transfer("acc-1", "acc-1", 10));
+            assertThrows(IllegalArgumentException.class, () -> ledger.balanceOf("missing"));
+            assertThrows(IllegalArgumentException.class, () -> ledger.open("acc-1", 0));
+            assertEquals(100, ledger.balanceOf("acc-1"));
+            assertEquals(200, ledger.balanceOf("acc-2"));
+            assertEquals(List.of(), ledger.statement("acc-1"));
+        }
+    }
+
+    @Test
+    void transferToUnknownAccountOnAnotherShardIsReversed() {
+        try (ShardedLedger ledger = new ShardedLedger(64)) {
+            ledger.open("acc-1", 100);
+            String missing = idOnAnotherShard(ledger, "acc-1");
+
+            assertThrows(IllegalArgumentException.class, () -> ledger.transfer("acc-1", missing, 40));
+
+            assertEquals(100, ledger.balanceOf("acc-1"));
+            assertEquals(List.of(
+                    new Entry(0, Entry.Type.TRANSFER_OUT, 40, 60),
+                    new Entry(1, Entry.Type.TRANSFER_IN, 40, 100)
+            ), ledger.statement("acc-1"));
+        }
+    }
+
+    @Test
+    void futuresCarryResultsAndFailures() {
+        try (ShardedLedger ledger = new ShardedLedger(2)) {
+            ledger.openAsync("acc-1", 10).join();
+            CompletableFuture<Void> overdraft = ledger.withdrawAsync("acc-1", 11);
+            CompletionException failure = assertThrows(CompletionException.class, overdraft::join);
+            assertInstanceOf(IllegalStateException.class, failure.getCause());
+            assertEquals(10, (long) ledger.balanceOfAsync("acc-1").join());
+        }
+    }
+
+    @Test
+    void closeFinishesAcceptedOperations() {
+        ShardedLedger ledger = new ShardedLedger(8, 1 << 10);
+        for (int i = 0; i < 16; i++) {
+            ledger.open("acc-" + i, 1_000);
+        }
+        List<CompletableFuture<Void>> transfers = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            transfers.add(ledger.transferAsync("acc-" + (i % 16), "acc-" + ((i + 5) % 16), 1));
+        }
+        ledger.close();
+
+        transfers.forEach(CompletableFuture::join);
+        assertThrows(IllegalStateException.class, () -> ledger.depositAsync("acc-1", 1));
+    }
+
+    @RepeatedTest(3)
+    void moneyIsConservedUnderConcurrentCrossShardTransfers() throws InterruptedException {
+        int accounts = 32;
+        try (ShardedLedger ledger = new ShardedLedger(4, 1 << 6)) {
+            for (int i = 0; i < accounts; i++) {
+                ledger.open("acc-" + i, 10_000);
+            }
+            CountDownLatch startGate = new CountDownLatch(1);
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            try {
+                for (int t = 0; t < 8; t++) {
+                    executor.submit(() -> {
+                        startGate.await();
+                        ThreadLocalRandom random = ThreadLocalRandom.current();
+                        for (int i = 0; i < 2_000; i++) {
+                            int from = random.nextInt(accounts);
+                            int to = (from + 1 + random.nextInt(accounts - 1)) % accounts;
+                            try {
+                                ledger.transfer("acc-" + from, "acc-" + to, random.nextLong(1, 100));
+                            } catch (IllegalStateException insufficientFunds) {
+                                // fine -- conservation is what we assert
+                            }
+                        }
+                        return null;
+                    });
+                }
+                startGate.countDown();
+                executor.shutdown();
+                assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+            } finally {
+                executor.shutdownNow();
+            }
+
+            long total = 0;
+            for (int i = 0; i < accounts; i++) {
+                total += ledger.balanceOf("acc-" + i);
+            }
+            assertEquals(accounts * 10_000L, total);
+        }
+    }
+
+    private static String idOnAnotherShard(ShardedLedger ledger, String accountId) {
+        for (int i = 0; ; i++) {
+            String candidate = "missing-" + i;
+            if (ledger.shardIndex(candidate) != ledger.shardIndex(accountId)) {
+                return candidate;
+            }
+        }
+    }
+}
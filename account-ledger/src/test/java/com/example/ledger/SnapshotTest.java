@@ -0,0 +1,213 @@
+package com.example.ledger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnapshotTest {
+
+    private static final int SEGMENT_SIZE = 4 << 10;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void restoresFromSnapshotPlusLogTail() throws IOException {
+        try (Ledger ledger = Ledger.durable(directory, Durability.PER_OP)) {
+            ledger.open("acc-1", 1_000);
+            ledger.open("acc-2", 0);
+            ledger.transfer("acc-1", "acc-2", 300);
+            ledger.snapshot();
+            ledger.deposit("acc-1", 50);
+            ledger.open("acc-3", 7);
+        }
+
+        try (Ledger reopened = Ledger.durable(directory, Durability.PER_OP)) {
+            assertEquals(750, reopened.balanceOf("acc-1"));
+            assertEquals(300, reopened.balanceOf("acc-2"));
+            assertEquals(7, reopened.balanceOf("acc-3"));
+            // the transfer is inside the snapshot; only the tail is in memory again
+            assertEquals(List.of(new Entry(1, Entry.Type.DEPOSIT, 50, 750)), reopened.statement("acc-1"));
+            assertEquals(List.of(), reopened.statement("acc-2"));
+        }
+    }
+
+    @Test
+    void sequencesCarryOnAfterRestore() throws IOException {
+        try (Ledger ledger = Ledger.durable(directory, Durability.BATCHED)) {
+            ledger.open("acc-1", 0);
+            ledger.deposit("acc-1", 10);
+            ledger.deposit("acc-1", 20);
+            ledger.snapshot();
+        }
+
+        try (Ledger reopened = Ledger.durable(directory, Durability.BATCHED)) {
+            reopened.deposit("acc-1", 5);
+            assertEquals(List.of(new Entry(2, Entry.Type.DEPOSIT, 5, 35)), reopened.statement("acc-1"));
+            assertEquals(List.of(new Entry(2, Entry.Type.DEPOSIT, 5, 35)), reopened.statement("acc-1", 0, 10));
+            assertEquals(List.of(), reopened.statement("acc-1", 3, 10));
+        }
+    }
+
+    @Test
+    void snapshotDeletesLogSegmentsNoLongerNeeded() throws IOException {
+        try (Ledger ledger = Ledger.durable(directory, Durability.BATCHED, SEGMENT_SIZE)) {
+            ledger.open("acc-1", 0);
+            for (int i = 0; i < 1_000; i++) {
+                ledger.deposit("acc-1", 1);
+            }
+            long before = count("wal-");
+            ledger.snapshot();
+            ledger.deposit("acc-1", 1);
+            ledger.snapshot();
+            assertTrue(count("wal-") < before, "expected old segments to be deleted");
+            assertEquals(Snapshot.RETAINED, count("snapshot-"));
+        }
+
+        try (Ledger reopened = Ledger.durable(directory, Durability.BATCHED, SEGMENT_SIZE)) {
+            assertEquals(1_001, reopened.balanceOf("acc-1"));
+        }
+    }
+
+    @Test
+    void damagedNewestSnapshotFallsBackToTheOlderOne() throws IOException {
+        try (Ledger ledger = Ledger.durable(directory, Durability.PER_OP)) {
+            ledger.open("acc-1", 100);
+            ledger.snapshot();
+            ledger.deposit("acc-1", 10);
+            ledger.snapshot();
+            ledger.deposit("acc-1", 1);
+        }
+        Path newest = newest("snapshot-");
+        try (RandomAccessFile file = new RandomAccessFile(newest.toFile(), "rw")) {
+            file.seek(file.length() - 20);
+            int b = file.read();
+            file.seek(file.length() - 20);
+            file.write(b ^ 0xFF);
+        }
+
+        try (Ledger reopened = Ledger.durable(directory, Durability.PER_OP)) {
+            assertEquals(111, reopened.balanceOf("acc-1"));
+        }
+    }
+
+    @Test
+    void snapshotsIncludeDormantAccounts(@TempDir Path dormantDirectory) throws IOException {
+        try (Ledger ledger = Ledger.durable(directory, Durability.PER_OP)) {
+            ledger.open("acc-1", 1_000);
+            ledger.open("acc-2", 0);
+            ledger.transfer("acc-1", "acc-2", 300);
+            ledger.evictIdleAccounts(dormantDirectory, 0, Duration.ofHours(1));
+            assertEquals(2, ledger.evictIdle());
+            ledger.snapshot();
+            ledger.deposit("acc-2", 5);
+        }
+
+        try (Ledger reopened = Ledger.durable(directory, Durability.PER_OP)) {
+            assertEquals(700, reopened.balanceOf("acc-1"));
+            assertEquals(305, reopened.balanceOf("acc-2"));
+            assertEquals(List.of(new Entry(1, Entry.Type.DEPOSIT, 5, 305)), reopened.statement("acc-2"));
+        }
+    }
+
+    @Test
+    void snapshotOfInMemoryLedgerIsRejected() {
+        assertThrows(IllegalStateException.class, () -> new Ledger().snapshot());
+    }
+
+    @Test
+    void moneyIsConservedWhenSnapshottingDuringConcurrentTransfers() throws Exception {
+        List<String> accountIds = List.of("acc-0", "acc-1", "acc-2", "acc-3");
+        long[] balances = new long[accountIds.size()];
+        try (Ledger ledger = Ledger.durable(directory, Durability.ASYNC, SEGMENT_SIZE)) {
+            accountIds.forEach(id -> ledger.open(id, 10_000));
+            CountDownLatch startGate = new CountDownLatch(1);
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            try {
+                for (int t = 0; t < 8; t++) {
+                    executor.submit(() -> {
+                        startGate.await();
+                        ThreadLocalRandom random = ThreadLocalRandom.current();
+                        for (int i = 0; i < 500; i++) {
+                            String from = accountIds.get(random.nextInt(accountIds.size()));
+                            String to = accountIds.get(random.nextInt(accountIds.size()));
+                            if (from.equals(to)) {
+                                continue;
+                            }
+                            try {
+                                ledger.transfer(from, to, random.nextLong(1, 100));
+                            } catch (IllegalStateException insufficientFunds) {
+                                // fine -- conservation is what we assert
+                            }
+                        }
+                        return null;
+                    });
+                }
+                startGate.countDown();
+                for (int i = 0; i < 20; i++) {
+                    ledger.snapshot();
+                }
+                executor.shutdown();
+                assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+            } finally {
+                executor.shutdownNow();
+            }
+            for (int i = 0; i < balances.length; i++) {
+                balances[i] = ledger.balanceOf(accountIds.get(i));
+            }
+        }
+
+        try (Ledger reopened = Ledger.durable(directory, Durability.ASYNC, SEGMENT_SIZE)) {
+            for (int i = 0; i < balances.length; i++) {
+                assertEquals(balances[i], reopened.balanceOf(accountIds.get(i)));
+            }
+            assertEquals(40_000, accountIds.stream().mapToLong(reopened::balanceOf).sum());
+        }
+    }
+
+    @Test
+    void backgroundSnapshotsRunOnTheirOwn() throws Exception {
+        try (Ledger ledger = Ledger.durable(directory, Durability.BATCHED, Duration.ofMillis(10))) {
+            ledger.open("acc-1", 42);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (count("snapshot-") == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(count("snapshot-") > 0, "expected a background snapshot");
+        }
+
+        try (Ledger reopened = Ledger.durable(directory, Durability.BATCHED)) {
+            assertEquals(42, reopened.balanceOf("acc-1"));
+        }
+    }
+
+    private long count(String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(f -> f.getFileName().toString().startsWith(prefix)
+                    && !f.getFileName().toString().endsWith(".tmp")).count();
+        }
+    }
+
+    private Path newest(String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(f -> f.getFileName().toString().startsWith(prefix)).sorted()
+                    .reduce((a, b) -> b).orElseThrow();
+        }
+    }
+}
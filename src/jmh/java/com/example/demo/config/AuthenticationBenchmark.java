@@ -0,0 +1,75 @@
+package com.example.demo.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Authentication cost of one stateless HTTP Basic request, before and after the verified-credential
+ * cache. Single-threaded, so the ops/s score reads directly as authenticated requests per core
+ * (authentication work only; the in-memory user lookup stands in for the database).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(1)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AuthenticationBenchmark {
+
+    private static final String EMAIL = "bench@example.com";
+    private static final String PASSWORD = "correct horse battery staple";
+
+    private AuthenticationProvider bcryptProvider;
+    private AuthenticationProvider cachingProvider;
+
+    @Setup
+    public void setUp() {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder();
+        String hash = encoder.encode(PASSWORD);
+        UserDetailsService users = email -> User.withUsername(email).password(hash).authorities("USER").build();
+
+        DaoAuthenticationProvider bcrypt = new DaoAuthenticationProvider();
+        bcrypt.setUserDetailsService(users);
+        bcrypt.setPasswordEncoder(encoder);
+        bcryptProvider = bcrypt;
+
+        VerifiedCredentialCache cache = new VerifiedCredentialCache(new SimpleMeterRegistry(), 10_000, Duration.ofMinutes(5));
+        cachingProvider = new CachingAuthenticationProvider(bcrypt, cache);
+        cachingProvider.authenticate(request());
+    }
+
+    @Benchmark
+    public Authentication bcryptEveryRequest() {
+        return bcryptProvider.authenticate(request());
+    }
+
+    @Benchmark
+    public Authentication cachedCredential() {
+        return cachingProvider.authenticate(request());
+    }
+
+    private static Authentication request() {
+        return UsernamePasswordAuthenticationToken.unauthenticated(EMAIL, PASSWORD);
+    }
+}
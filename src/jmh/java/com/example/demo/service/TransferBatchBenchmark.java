@@ -0,0 +1,108 @@
+package com.example.demo.service;
+
+import com.example.demo.DemoApplication;
+import com.example.demo.dto.TransferBatchResponse;
+import com.example.demo.dto.TransferRequest;
+import com.example.demo.model.BankAccount;
+import com.example.demo.model.User;
+import com.example.demo.repository.BankAccountRepository;
+import com.example.demo.repository.UserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A payroll run of {@value #TRANSFERS} transfers from one account to as many payees, sent as that
+ * many single transfers and as one batch, against the full application on in-memory H2. Each
+ * invocation is a whole run, so the score is the wall time of one run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+public class TransferBatchBenchmark {
+
+    private static final int TRANSFERS = 10_000;
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+
+    private ConfigurableApplicationContext context;
+    private TransferService transferService;
+    private User payer;
+    private List<TransferRequest> payroll;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(DemoApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.url=jdbc:h2:mem:transfer-batch-bench",
+                        "spring.jpa.show-sql=false",
+                        "logging.level.com.example.demo=INFO")
+                .run();
+        transferService = context.getBean(TransferService.class);
+        UserRepository users = context.getBean(UserRepository.class);
+        BankAccountRepository accounts = context.getBean(BankAccountRepository.class);
+
+        payer = new User();
+        payer.setEmail("payroll@example.com");
+        payer.setPassword("not-used");
+        payer.setFullName("Payroll");
+        payer = users.save(payer);
+
+        // enough for every run of every iteration of both benchmarks
+        BankAccount source = accounts.save(account(payer, "9000000000", new BigDecimal("1000000000.00")));
+        List<BankAccount> payees = new ArrayList<>();
+        for (int i = 0; i < TRANSFERS; i++) {
+            payees.add(account(payer, String.valueOf(9_100_000_000L + i), BigDecimal.ZERO));
+        }
+        payroll = new ArrayList<>();
+        for (BankAccount payee : accounts.saveAll(payees)) {
+            payroll.add(new TransferRequest(source.getId(), payee.getId(), AMOUNT, "salary"));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void singleTransfers(Blackhole blackhole) {
+        for (TransferRequest request : payroll) {
+            blackhole.consume(transferService.transfer(request, payer.getId()));
+        }
+    }
+
+    @Benchmark
+    public TransferBatchResponse batch() {
+        return transferService.transferBatch(payroll, payer.getId());
+    }
+
+    private static BankAccount account(User owner, String number, BigDecimal balance) {
+        BankAccount account = new BankAccount();
+        account.setUser(owner);
+        account.setAccountNumber(number);
+        account.setBalance(balance);
+        return account;
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.demo.config;
+
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+
+/**
+ * Principal built once by the {@code UserDetailsService} during authentication. Carries the user id
+ * so controllers can take it via {@code @AuthenticationPrincipal} and check ownership by id, without
+ * re-loading the user by email on every request.
+ */
+@Getter
+public class AuthenticatedUser extends User {
+
+    private final Long id;
+
+    public AuthenticatedUser(Long id, String email, String password,
+                             Collection<? extends GrantedAuthority> authorities) {
+        super(email, password, authorities);
+        this.id = id;
+    }
+
+    public String getEmail() {
+        return getUsername();
+    }
+}
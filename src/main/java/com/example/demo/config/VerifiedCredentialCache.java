@@ -0,0 +1,122 @@
+package com.example.demo.config;
+
+import com.example.demo.service.PasswordChangedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers credentials that recently passed a full BCrypt check, so a stateless client sending
+ * HTTP Basic on every request pays for BCrypt once per TTL instead of once per request.
+ *
+ * Only an HMAC of the password is kept, keyed with a random per-process secret, and it is compared
+ * in constant time. Entries are bounded by size and expire after a short TTL. They are dropped
+ * as soon as a password changes: once when the change is made, and again after it commits.
+ * A verification that was already running when an invalidation happened is not cached — see
+ * {@link #epoch()}. Password changes made on another node are bounded by the TTL.
+ */
+@Component
+public class VerifiedCredentialCache {
+
+    private static final String HMAC = "HmacSHA256";
+
+    private final Cache<String, Verified> cache;
+    private final SecretKeySpec key;
+    private final ThreadLocal<Mac> macs;
+    private final AtomicLong epoch = new AtomicLong();
+
+    public VerifiedCredentialCache(MeterRegistry meterRegistry,
+                                   @Value("${app.security.credential-cache.maximum-size:10000}") long maximumSize,
+                                   @Value("${app.security.credential-cache.ttl:5m}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        this.key = new SecretKeySpec(secret, HMAC);
+        this.macs = ThreadLocal.withInitial(this::newMac);
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "verified-credentials");
+    }
+
+    /**
+     * Capture before starting a full verification and pass to {@link #store}: any invalidation in
+     * between bumps the epoch, and the (possibly stale) result is then not cached.
+     */
+    public long epoch() {
+        return epoch.get();
+    }
+
+    /** An authenticated token when this exact username/password pair was verified recently, else null. */
+    public Authentication lookup(String username, String password) {
+        Verified verified = cache.getIfPresent(username);
+        if (verified == null || !MessageDigest.isEqual(verified.digest, digest(username, password))) {
+            return null;
+        }
+        return UsernamePasswordAuthenticationToken.authenticated(verified.principal, null, verified.authorities);
+    }
+
+    public void store(long epochAtStart, String username, String password, Authentication result) {
+        if (epoch.get() != epochAtStart) {
+            return;
+        }
+        cache.put(username, new Verified(digest(username, password), result.getPrincipal(), result.getAuthorities()));
+        if (epoch.get() != epochAtStart) {
+            // an invalidation slipped in between the check and the put
+            cache.invalidate(username);
+        }
+    }
+
+    public void invalidate(String username) {
+        epoch.incrementAndGet();
+        cache.invalidate(username);
+    }
+
+    @EventListener
+    public void onPasswordChanging(PasswordChangedEvent event) {
+        invalidate(event.email());
+    }
+
+    @TransactionalEventListener
+    public void onPasswordChanged(PasswordChangedEvent event) {
+        invalidate(event.email());
+    }
+
+    private byte[] digest(String username, String password) {
+        Mac mac = macs.get();
+        mac.update(username.getBytes(StandardCharsets.UTF_8));
+        mac.update((byte) 0);
+        return mac.doFinal(password.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(HMAC);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(HMAC + " unavailable", e);
+        }
+    }
+
+    private record Verified(byte[] digest, Object principal, Collection<? extends GrantedAuthority> authorities) {}
+}
@@ -1,21 +1,24 @@
 package com.example.demo.controller;
 
+import com.example.demo.config.AuthenticatedUser;
 import com.example.demo.dto.AccountResponse;
 import com.example.demo.dto.CreateAccountRequest;
-import com.example.demo.dto.TransactionResponse;
-import com.example.demo.exception.BadRequestException;
-import com.example.demo.model.BankAccount;
-import com.example.demo.model.User;
+import com.example.demo.dto.ExportFormat;
+import com.example.demo.dto.TransactionPage;
+import com.example.demo.repository.TransactionFilter;
 import com.example.demo.service.BankAccountService;
 import com.example.demo.service.TransactionService;
-import com.example.demo.service.UserService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
-import java.security.Principal;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -26,19 +29,16 @@ public class BankAccountController {
 
     private final BankAccountService bankAccountService;
     private final TransactionService transactionService;
-    private final UserService userService;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
-    public AccountResponse create(@RequestBody CreateAccountRequest request, Principal principal) {
-        User user = userService.findByEmail(principal.getName());
-        return AccountResponse.from(bankAccountService.create(user, request));
+    public AccountResponse create(@RequestBody CreateAccountRequest request, @AuthenticationPrincipal AuthenticatedUser principal) {
+        return AccountResponse.from(bankAccountService.create(principal.getId(), request));
     }
 
     @GetMapping
-    public List<AccountResponse> list(Principal principal) {
-        User user = userService.findByEmail(principal.getName());
-        return bankAccountService.getAccountsForUser(user.getId()).stream()
+    public List<AccountResponse> list(@AuthenticationPrincipal AuthenticatedUser principal) {
+        return bankAccountService.getAccountsForUser(principal.getId()).stream()
                 .map(AccountResponse::from)
                 .toList();
     }
@@ -49,31 +49,59 @@ public class BankAccountController {
     }
 
     /**
-     * Deliberately naive transaction history endpoint:
-     * - Returns ALL matching transactions in one response (no pagination)
-     * - Filters applied in Java after loading everything from DB
-     * - No limit on result size — a busy account will produce multi-MB responses
+     * Keyset-paginated transaction history, newest first.
+     * Filters are pushed into SQL; pass the returned {@code nextCursor} back as {@code cursor}
+     * to fetch the next page.
      */
     @GetMapping("/{id}/transactions")
-    public List<TransactionResponse> transactions(
+    public TransactionPage transactions(
             @PathVariable Long id,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
             @RequestParam(required = false) String direction,
             @RequestParam(required = false) BigDecimal minAmount,
             @RequestParam(required = false) BigDecimal maxAmount,
-            Principal principal) {
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
+            @AuthenticationPrincipal AuthenticatedUser principal) {
 
-        User user = userService.findByEmail(principal.getName());
-        BankAccount account = bankAccountService.getById(id);
+        requireOwner(id, principal);
 
-        if (!account.getUser().getId().equals(user.getId())) {
-            throw new BadRequestException("You do not own this account");
-        }
+        TransactionFilter filter = new TransactionFilter(
+                from, to, TransactionFilter.Direction.parse(direction), minAmount, maxAmount);
+        return transactionService.getHistory(id, filter, cursor, limit);
+    }
 
-        return transactionService.getHistory(id, from, to, direction, minAmount, maxAmount)
-                .stream()
-                .map(tx -> TransactionResponse.from(tx, id))
-                .toList();
+    /**
+     * Full filtered history as NDJSON (default) or CSV, streamed row by row from keyset
+     * batches — the response is never materialised in memory.
+     */
+    @GetMapping("/{id}/transactions/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String direction,
+            @RequestParam(required = false) BigDecimal minAmount,
+            @RequestParam(required = false) BigDecimal maxAmount,
+            @RequestParam(required = false) String format,
+            @AuthenticationPrincipal AuthenticatedUser principal) {
+
+        requireOwner(id, principal);
+
+        ExportFormat exportFormat = ExportFormat.parse(format);
+        TransactionFilter filter = new TransactionFilter(
+                from, to, TransactionFilter.Direction.parse(direction), minAmount, maxAmount);
+        StreamingResponseBody body = out -> transactionService.exportHistory(id, filter, exportFormat, out);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.contentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"account-" + id + "-transactions." + exportFormat.extension() + "\"")
+                .body(body);
+    }
+
+    private void requireOwner(Long accountId, AuthenticatedUser principal) {
+        bankAccountService.requireOwned(accountId, principal.getId());
     }
 }
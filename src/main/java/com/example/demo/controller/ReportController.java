@@ -0,0 +1,57 @@
+package com.example.demo.controller;
+
+import com.example.demo.config.AuthenticatedUser;
+import com.example.demo.dto.ReportJobResponse;
+import com.example.demo.dto.ReportPeriod;
+import com.example.demo.service.BankAccountService;
+import com.example.demo.service.ReportJobService;
+import com.example.demo.service.ReportService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+import java.time.LocalDateTime;
+
+@RestController
+@RequestMapping("/api")
+@RequiredArgsConstructor
+public class ReportController {
+
+    private final ReportService reportService;
+    private final ReportJobService reportJobService;
+    private final BankAccountService bankAccountService;
+
+    /**
+     * Sent / received / net / count / largest for a calendar week or month (containing {@code from},
+     * default today) or for a CUSTOM [from, to) window.
+     * With {@code async=true} the report is queued instead: 202 Accepted with a job id, and the
+     * result is polled from {@code GET /api/reports/jobs/{jobId}}.
+     */
+    @GetMapping("/accounts/{id}/reports")
+    public ResponseEntity<?> report(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "MONTHLY") ReportPeriod period,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "false") boolean async,
+            @AuthenticationPrincipal AuthenticatedUser principal) {
+
+        bankAccountService.requireOwned(id, principal.getId());
+
+        if (!async) {
+            return ResponseEntity.ok(reportService.report(id, period, from, to));
+        }
+        ReportJobResponse job = reportJobService.submit(principal.getId(), id, period, from, to);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/reports/jobs/" + job.jobId()))
+                .body(job);
+    }
+
+    @GetMapping("/reports/jobs/{jobId}")
+    public ReportJobResponse job(@PathVariable String jobId, @AuthenticationPrincipal AuthenticatedUser principal) {
+        return reportJobService.get(principal.getId(), jobId);
+    }
+}
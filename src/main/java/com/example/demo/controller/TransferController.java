@@ -1,25 +1,45 @@
 package com.example.demo.controller;
 
+import com.example.demo.config.AuthenticatedUser;
+import com.example.demo.dto.TransferBatchRequest;
+import com.example.demo.dto.TransferBatchResponse;
 import com.example.demo.dto.TransferRequest;
 import com.example.demo.dto.TransferResponse;
+import com.example.demo.service.IdempotentTransferService;
 import com.example.demo.service.TransferService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
-import java.security.Principal;
-
 @RestController
 @RequestMapping("/api/transfers")
 @RequiredArgsConstructor
 public class TransferController {
 
+    private final IdempotentTransferService idempotentTransferService;
     private final TransferService transferService;
 
+    /**
+     * Clients should send a unique Idempotency-Key per logical transfer; retries with the same key
+     * replay the original response instead of moving money again.
+     */
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
-    public TransferResponse transfer(@Valid @RequestBody TransferRequest request, Principal principal) {
-        return TransferResponse.from(transferService.transfer(request, principal.getName()));
+    public TransferResponse transfer(@Valid @RequestBody TransferRequest request,
+                                     @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                     @AuthenticationPrincipal AuthenticatedUser principal) {
+        return idempotentTransferService.transfer(request, principal.getId(), idempotencyKey);
+    }
+
+    /**
+     * Payroll / settlement runs: up to 10,000 transfers applied in one transaction.
+     * Each item gets its own COMPLETED or FAILED result; one bad item does not fail the batch.
+     */
+    @PostMapping("/batch")
+    public TransferBatchResponse transferBatch(@Valid @RequestBody TransferBatchRequest request,
+                                               @AuthenticationPrincipal AuthenticatedUser principal) {
+        return transferService.transferBatch(request.transfers(), principal.getId());
     }
 }
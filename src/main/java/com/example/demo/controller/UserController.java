@@ -1,15 +1,16 @@
 package com.example.demo.controller;
 
+import com.example.demo.config.AuthenticatedUser;
+import com.example.demo.dto.ChangePasswordRequest;
 import com.example.demo.dto.CreateUserRequest;
 import com.example.demo.dto.UserResponse;
 import com.example.demo.service.UserService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
-import java.security.Principal;
-
 @RestController
 @RequestMapping("/api/users")
 @RequiredArgsConstructor
@@ -24,7 +25,14 @@ public class UserController {
     }
 
     @GetMapping("/me")
-    public UserResponse me(Principal principal) {
-        return UserResponse.from(userService.findByEmail(principal.getName()));
+    public UserResponse me(@AuthenticationPrincipal AuthenticatedUser principal) {
+        return UserResponse.from(userService.findById(principal.getId()));
+    }
+
+    @PutMapping("/me/password")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void changePassword(@Valid @RequestBody ChangePasswordRequest request,
+                               @AuthenticationPrincipal AuthenticatedUser principal) {
+        userService.changePassword(principal.getEmail(), request.currentPassword(), request.newPassword());
     }
 }
@@ -0,0 +1,4 @@
+package com.example.demo.dto;
+
+/** {@code result} is set once the job is DONE, {@code error} if it FAILED. */
+public record ReportJobResponse(String jobId, String status, ReportResponse result, String error) {}
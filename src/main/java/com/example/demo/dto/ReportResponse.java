@@ -0,0 +1,17 @@
+package com.example.demo.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/** Totals for [from, to) — the end is exclusive. */
+public record ReportResponse(
+        Long accountId,
+        ReportPeriod period,
+        LocalDateTime from,
+        LocalDateTime to,
+        BigDecimal totalSent,
+        BigDecimal totalReceived,
+        BigDecimal netChange,
+        long transactionCount,
+        BigDecimal largestTransaction
+) {}
@@ -0,0 +1,9 @@
+package com.example.demo.dto;
+
+import java.util.List;
+
+/**
+ * One page of history. {@code nextCursor} is null on the last page; otherwise pass it back
+ * as the {@code cursor} parameter to continue.
+ */
+public record TransactionPage(List<TransactionResponse> items, String nextCursor) {}
@@ -0,0 +1,12 @@
+package com.example.demo.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record TransferBatchRequest(
+        @NotEmpty @Size(max = 10_000) List<@Valid @NotNull TransferRequest> transfers
+) {}
@@ -0,0 +1,18 @@
+package com.example.demo.dto;
+
+import java.util.List;
+
+/** One result per request item, in request order. */
+public record TransferBatchResponse(int completed, int failed, List<Item> results) {
+
+    public record Item(int index, String status, TransferResponse transfer, String error) {
+
+        public static Item completed(int index, TransferResponse transfer) {
+            return new Item(index, "COMPLETED", transfer, null);
+        }
+
+        public static Item failed(int index, String error) {
+            return new Item(index, "FAILED", null, error);
+        }
+    }
+}
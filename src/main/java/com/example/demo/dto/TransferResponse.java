@@ -27,4 +27,18 @@ public record TransferResponse(
                 tx.getCreatedAt()
         );
     }
+
+    /** For callers that already know the account numbers — avoids initialising the lazy associations. */
+    public static TransferResponse from(Transaction tx, String fromAccountNumber, String toAccountNumber) {
+        return new TransferResponse(
+                tx.getId(),
+                fromAccountNumber,
+                toAccountNumber,
+                tx.getAmount(),
+                tx.getCurrency(),
+                tx.getStatus().name(),
+                tx.getDescription(),
+                tx.getCreatedAt()
+        );
+    }
 }
@@ -0,0 +1,44 @@
+package com.example.demo.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Read model for reports: one row per account per calendar day.
+ * Maintained in the same database transaction as every transfer, so it is never behind the
+ * transactions table; a yearly report reads ~365 of these instead of a year of raw rows.
+ */
+@Entity
+@Table(name = "daily_account_summaries")
+@IdClass(DailyAccountSummaryId.class)
+@Getter
+@Setter
+@NoArgsConstructor
+public class DailyAccountSummary {
+
+    @Id
+    private Long accountId;
+
+    @Id
+    private LocalDate summaryDate;
+
+    @Column(nullable = false)
+    private BigDecimal totalSent = BigDecimal.ZERO;
+
+    @Column(nullable = false)
+    private long sentCount;
+
+    @Column(nullable = false)
+    private BigDecimal totalReceived = BigDecimal.ZERO;
+
+    @Column(nullable = false)
+    private long receivedCount;
+
+    @Column(nullable = false)
+    private BigDecimal largestAmount = BigDecimal.ZERO;
+}
@@ -9,14 +9,23 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions", indexes = {
+        @Index(name = "idx_transactions_from_created", columnList = "from_account_id, created_at, id"),
+        @Index(name = "idx_transactions_to_created", columnList = "to_account_id, created_at, id")
+}, uniqueConstraints = {
+        @UniqueConstraint(name = "uk_transactions_owner_idempotency_key",
+                columnNames = {"idempotency_owner_id", "idempotency_key"})
+})
 @Getter
 @Setter
 @NoArgsConstructor
 public class Transaction {
 
+    // pooled sequence instead of IDENTITY: ids are handed out 50 at a time without a round trip,
+    // which is what lets Hibernate batch the inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transactions_seq")
+    @SequenceGenerator(name = "transactions_seq", sequenceName = "transactions_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -39,6 +48,17 @@ public class Transaction {
 
     private String description;
 
+    /**
+     * Client-supplied Idempotency-Key, scoped to the user who sent it: the unique constraint on
+     * (owner, key) is the cross-node dedup guarantee, and two users never collide on a key.
+     */
+    @Column(name = "idempotency_key", length = 100)
+    private String idempotencyKey;
+
+    /** The user who sent {@link #idempotencyKey}; set with it, null without one. */
+    @Column(name = "idempotency_owner_id")
+    private Long idempotencyOwnerId;
+
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
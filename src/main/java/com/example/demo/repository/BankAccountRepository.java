@@ -1,8 +1,16 @@
 package com.example.demo.repository;
 
 import com.example.demo.model.BankAccount;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -10,5 +18,36 @@ public interface BankAccountRepository extends JpaRepository<BankAccount, Long>
 
     List<BankAccount> findByUserId(Long userId);
 
+    boolean existsByIdAndUserId(Long id, Long userId);
+
     Optional<BankAccount> findByAccountNumber(String accountNumber);
+
+    @Query("SELECT new com.example.demo.repository.TransferParty(a.id, a.accountNumber, a.currency, a.user.id) " +
+           "FROM BankAccount a WHERE a.id IN :ids")
+    List<TransferParty> findTransferParties(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Conditional debit: the balance check and the write are one statement under the row lock,
+     * so concurrent debits can never both pass the check. Returns 0 when funds are insufficient.
+     */
+    @Modifying
+    @Query("UPDATE BankAccount a SET a.balance = a.balance - :amount " +
+           "WHERE a.id = :id AND a.balance >= :amount")
+    int debit(@Param("id") Long id, @Param("amount") BigDecimal amount);
+
+    @Modifying
+    @Query("UPDATE BankAccount a SET a.balance = a.balance + :amount WHERE a.id = :id")
+    int credit(@Param("id") Long id, @Param("amount") BigDecimal amount);
+
+    /**
+     * SELECT ... FOR UPDATE in ascending id order. Callers pass ids in ascending chunks, so rows are
+     * always locked in the same global order as the single-transfer UPDATEs.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM BankAccount a WHERE a.id IN :ids ORDER BY a.id")
+    List<BankAccount> lockAllByIdOrdered(@Param("ids") Collection<Long> ids);
+
+    /** Keyset walk over all account ids, for background jobs. */
+    @Query("SELECT a.id FROM BankAccount a WHERE a.id > :after ORDER BY a.id")
+    List<Long> findIdsAfter(@Param("after") Long after, Pageable pageable);
 }
@@ -0,0 +1,75 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.DailyAccountSummary;
+import com.example.demo.model.DailyAccountSummaryId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+
+/**
+ * Writers must hold the account's row lock (transfers and the rebuild job both do), which is what
+ * makes the update-then-insert upsert below race-free without database-specific UPSERT syntax.
+ */
+public interface DailyAccountSummaryRepository extends JpaRepository<DailyAccountSummary, DailyAccountSummaryId> {
+
+    @Modifying
+    @Query("UPDATE DailyAccountSummary s SET " +
+           "s.totalSent = s.totalSent + :sent, s.sentCount = s.sentCount + :sentCount, " +
+           "s.totalReceived = s.totalReceived + :received, s.receivedCount = s.receivedCount + :receivedCount, " +
+           "s.largestAmount = CASE WHEN s.largestAmount < :largest THEN :largest ELSE s.largestAmount END " +
+           "WHERE s.accountId = :accountId AND s.summaryDate = :day")
+    int addToDay(@Param("accountId") Long accountId,
+                 @Param("day") LocalDate day,
+                 @Param("sent") BigDecimal sent,
+                 @Param("sentCount") long sentCount,
+                 @Param("received") BigDecimal received,
+                 @Param("receivedCount") long receivedCount,
+                 @Param("largest") BigDecimal largest);
+
+    @Modifying
+    @Query(value = "INSERT INTO daily_account_summaries " +
+                   "(account_id, summary_date, total_sent, sent_count, total_received, received_count, largest_amount) " +
+                   "VALUES (:accountId, :day, :sent, :sentCount, :received, :receivedCount, :largest)",
+           nativeQuery = true)
+    int insertDay(@Param("accountId") Long accountId,
+                  @Param("day") LocalDate day,
+                  @Param("sent") BigDecimal sent,
+                  @Param("sentCount") long sentCount,
+                  @Param("received") BigDecimal received,
+                  @Param("receivedCount") long receivedCount,
+                  @Param("largest") BigDecimal largest);
+
+    @Query("SELECT new com.example.demo.repository.ReportTotals(" +
+           "SUM(s.totalSent), SUM(s.sentCount), SUM(s.totalReceived), SUM(s.receivedCount), MAX(s.largestAmount)) " +
+           "FROM DailyAccountSummary s " +
+           "WHERE s.accountId = :accountId AND s.summaryDate >= :fromDay AND s.summaryDate < :toDay")
+    ReportTotals sumDays(@Param("accountId") Long accountId,
+                         @Param("fromDay") LocalDate fromDay,
+                         @Param("toDay") LocalDate toDay);
+
+    @Modifying
+    @Query("DELETE FROM DailyAccountSummary s WHERE s.accountId IN :accountIds")
+    int deleteByAccountIds(@Param("accountIds") Collection<Long> accountIds);
+
+    /** Recomputes every day of the given accounts from raw COMPLETED transactions in one statement. */
+    @Modifying
+    @Query(value = "INSERT INTO daily_account_summaries " +
+                   "(account_id, summary_date, total_sent, sent_count, total_received, received_count, largest_amount) " +
+                   "SELECT account_id, summary_date, SUM(sent), SUM(sent_count), SUM(received), SUM(received_count), MAX(amount) " +
+                   "FROM (" +
+                   "  SELECT t.from_account_id AS account_id, CAST(t.created_at AS DATE) AS summary_date, " +
+                   "         t.amount AS sent, 1 AS sent_count, 0 AS received, 0 AS received_count, t.amount AS amount " +
+                   "  FROM transactions t WHERE t.from_account_id IN (:accountIds) AND t.status = 'COMPLETED' " +
+                   "  UNION ALL " +
+                   "  SELECT t.to_account_id, CAST(t.created_at AS DATE), 0, 0, t.amount, 1, t.amount " +
+                   "  FROM transactions t WHERE t.to_account_id IN (:accountIds) AND t.status = 'COMPLETED'" +
+                   ") daily " +
+                   "GROUP BY account_id, summary_date",
+           nativeQuery = true)
+    int rebuildFromTransactions(@Param("accountIds") Collection<Long> accountIds);
+}
@@ -0,0 +1,40 @@
+package com.example.demo.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * Aggregates for a slice of an account's history. Produced either from daily summary rows or
+ * from raw transactions, and combined with {@link #plus}. Null aggregates (no rows) become zero.
+ */
+public record ReportTotals(
+        BigDecimal totalSent,
+        Long sentCount,
+        BigDecimal totalReceived,
+        Long receivedCount,
+        BigDecimal largest
+) {
+    public ReportTotals {
+        totalSent = totalSent == null ? BigDecimal.ZERO : totalSent;
+        sentCount = sentCount == null ? 0L : sentCount;
+        totalReceived = totalReceived == null ? BigDecimal.ZERO : totalReceived;
+        receivedCount = receivedCount == null ? 0L : receivedCount;
+        largest = largest == null ? BigDecimal.ZERO : largest;
+    }
+
+    public static ReportTotals sent(SideTotals side) {
+        return new ReportTotals(side.total(), side.count(), null, null, side.largest());
+    }
+
+    public static ReportTotals received(SideTotals side) {
+        return new ReportTotals(null, null, side.total(), side.count(), side.largest());
+    }
+
+    public ReportTotals plus(ReportTotals other) {
+        return new ReportTotals(
+                totalSent.add(other.totalSent),
+                sentCount + other.sentCount,
+                totalReceived.add(other.totalReceived),
+                receivedCount + other.receivedCount,
+                largest.max(other.largest));
+    }
+}
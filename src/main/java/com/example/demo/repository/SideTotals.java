@@ -0,0 +1,6 @@
+package com.example.demo.repository;
+
+import java.math.BigDecimal;
+
+/** SUM / COUNT / MAX over one side (sent or received) of an account's raw transactions. */
+public record SideTotals(BigDecimal total, Long count, BigDecimal largest) {}
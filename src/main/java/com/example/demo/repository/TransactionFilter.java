@@ -0,0 +1,40 @@
+package com.example.demo.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * History filters. Every non-null field becomes a SQL predicate — nothing is filtered in Java.
+ */
+public record TransactionFilter(
+        LocalDateTime from,
+        LocalDateTime to,
+        Direction direction,
+        BigDecimal minAmount,
+        BigDecimal maxAmount
+) {
+    public TransactionFilter {
+        if (direction == null) {
+            direction = Direction.ALL;
+        }
+    }
+
+    public enum Direction {
+        ALL,
+        IN,
+        OUT;
+
+        /** Lenient like the original endpoint: missing or unknown values mean ALL. */
+        public static Direction parse(String value) {
+            if (value == null) {
+                return ALL;
+            }
+            for (Direction direction : values()) {
+                if (direction.name().equalsIgnoreCase(value)) {
+                    return direction;
+                }
+            }
+            return ALL;
+        }
+    }
+}
@@ -5,19 +5,35 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
-public interface TransactionRepository extends JpaRepository<Transaction, Long> {
+public interface TransactionRepository extends JpaRepository<Transaction, Long>, TransactionRepositoryCustom {
 
     List<Transaction> findByFromAccountIdOrToAccountIdOrderByCreatedAtDesc(
             Long fromAccountId, Long toAccountId);
 
-    /**
-     * Deliberately naive: loads ALL transactions for an account in one shot.
-     * No pagination, no limit. Will cause memory pressure as transaction volume grows.
-     */
-    @Query("SELECT t FROM Transaction t " +
-           "WHERE t.fromAccount.id = :accountId OR t.toAccount.id = :accountId " +
-           "ORDER BY t.createdAt DESC")
-    List<Transaction> findAllByAccountId(@Param("accountId") Long accountId);
+    /** Replay lookup of one user's key: fetches both accounts so the response needs no further queries. */
+    @Query("SELECT t FROM Transaction t JOIN FETCH t.fromAccount JOIN FETCH t.toAccount " +
+           "WHERE t.idempotencyOwnerId = :ownerId AND t.idempotencyKey = :key")
+    Optional<Transaction> findByIdempotencyKey(@Param("ownerId") Long ownerId,
+                                               @Param("key") String idempotencyKey);
+
+    /** Raw aggregates for the partial edge days of a report; a range scan on the from-side index. */
+    @Query("SELECT new com.example.demo.repository.SideTotals(SUM(t.amount), COUNT(t), MAX(t.amount)) " +
+           "FROM Transaction t " +
+           "WHERE t.fromAccount.id = :accountId AND t.createdAt >= :from AND t.createdAt < :to " +
+           "AND t.status = com.example.demo.model.TransactionStatus.COMPLETED")
+    SideTotals sumSent(@Param("accountId") Long accountId,
+                       @Param("from") LocalDateTime from,
+                       @Param("to") LocalDateTime to);
+
+    @Query("SELECT new com.example.demo.repository.SideTotals(SUM(t.amount), COUNT(t), MAX(t.amount)) " +
+           "FROM Transaction t " +
+           "WHERE t.toAccount.id = :accountId AND t.createdAt >= :from AND t.createdAt < :to " +
+           "AND t.status = com.example.demo.model.TransactionStatus.COMPLETED")
+    SideTotals sumReceived(@Param("accountId") Long accountId,
+                           @Param("from") LocalDateTime from,
+                           @Param("to") LocalDateTime to);
 }
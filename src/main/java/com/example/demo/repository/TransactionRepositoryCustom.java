@@ -0,0 +1,22 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.Transaction;
+
+import java.util.List;
+
+public interface TransactionRepositoryCustom {
+
+    /**
+     * One keyset page of one side of an account's history, newest first.
+     * Each side is a range scan on its own (account, created_at, id) index, so the cost
+     * depends on the page size and not on how many rows the account has.
+     *
+     * @param incoming true for rows where the account is the receiver, false for the sender side
+     * @param after    position to continue after, or null for the first page
+     */
+    List<Transaction> findHistoryPage(Long accountId,
+                                      boolean incoming,
+                                      TransactionFilter filter,
+                                      TransactionCursor after,
+                                      int limit);
+}
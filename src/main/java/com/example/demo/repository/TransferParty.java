@@ -0,0 +1,8 @@
+package com.example.demo.repository;
+
+/**
+ * The few account columns a transfer needs for validation and its response,
+ * read in one query instead of loading two entities plus their owners. The owner is its id,
+ * straight from the foreign key column, so the query needs no join.
+ */
+public record TransferParty(Long id, String accountNumber, String currency, Long ownerId) {}
@@ -1,10 +1,11 @@
 package com.example.demo.service;
 
 import com.example.demo.dto.CreateAccountRequest;
+import com.example.demo.exception.BadRequestException;
 import com.example.demo.exception.NotFoundException;
 import com.example.demo.model.BankAccount;
-import com.example.demo.model.User;
 import com.example.demo.repository.BankAccountRepository;
+import com.example.demo.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -17,11 +18,12 @@ import java.util.concurrent.ThreadLocalRandom;
 public class BankAccountService {
 
     private final BankAccountRepository bankAccountRepository;
+    private final UserRepository userRepository;
 
     @Transactional
-    public BankAccount create(User user, CreateAccountRequest request) {
+    public BankAccount create(Long userId, CreateAccountRequest request) {
         BankAccount account = new BankAccount();
-        account.setUser(user);
+        account.setUser(userRepository.getReferenceById(userId));
         account.setAccountNumber(generateAccountNumber());
         if (request.currency() != null && !request.currency().isBlank()) {
             account.setCurrency(request.currency().toUpperCase());
@@ -38,6 +40,20 @@ public class BankAccountService {
                 .orElseThrow(() -> new NotFoundException("Account not found"));
     }
 
+    /**
+     * Ownership check by id only: one indexed EXISTS on the happy path, never loading the account
+     * or its user. The second query only runs to tell "missing" from "not yours".
+     */
+    public void requireOwned(Long accountId, Long userId) {
+        if (bankAccountRepository.existsByIdAndUserId(accountId, userId)) {
+            return;
+        }
+        if (!bankAccountRepository.existsById(accountId)) {
+            throw new NotFoundException("Account not found");
+        }
+        throw new BadRequestException("You do not own this account");
+    }
+
     private String generateAccountNumber() {
         long number = ThreadLocalRandom.current().nextLong(1_000_000_000L, 9_999_999_999L);
         return String.valueOf(number);
@@ -0,0 +1,108 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.BankAccountRepository;
+import com.example.demo.repository.DailyAccountSummaryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Backfill / repair for the daily summary read model: recomputes every account's summaries
+ * from raw transactions.
+ *
+ * Account ids are walked by keyset and processed in chunks on a small fixed pool, each chunk in
+ * its own transaction. A chunk first locks its account rows (id order, like transfers), so a
+ * rebuild can run while transfers keep flowing: a transfer on a chunk's account waits for that
+ * chunk to finish, and never interleaves with the delete + recompute.
+ */
+@Slf4j
+@Component
+public class DailySummaryRebuildJob {
+
+    private final BankAccountRepository bankAccountRepository;
+    private final DailyAccountSummaryRepository summaryRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int threads;
+    private final boolean rebuildOnStartup;
+
+    public DailySummaryRebuildJob(BankAccountRepository bankAccountRepository,
+                                  DailyAccountSummaryRepository summaryRepository,
+                                  TransactionTemplate transactionTemplate,
+                                  @Value("${app.reports.summary.rebuild.chunk-size:100}") int chunkSize,
+                                  @Value("${app.reports.summary.rebuild.threads:4}") int threads,
+                                  @Value("${app.reports.summary.rebuild.on-startup:false}") boolean rebuildOnStartup) {
+        this.bankAccountRepository = bankAccountRepository;
+        this.summaryRepository = summaryRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.chunkSize = chunkSize;
+        this.threads = threads;
+        this.rebuildOnStartup = rebuildOnStartup;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        if (rebuildOnStartup) {
+            rebuildAll();
+        }
+    }
+
+    /** Returns the number of accounts rebuilt. */
+    public long rebuildAll() {
+        long started = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        Deque<Future<Integer>> inFlight = new ArrayDeque<>();
+        long accounts = 0;
+        try {
+            long after = 0;
+            List<Long> ids;
+            do {
+                ids = bankAccountRepository.findIdsAfter(after, PageRequest.of(0, chunkSize));
+                if (!ids.isEmpty()) {
+                    List<Long> chunk = ids;
+                    inFlight.add(pool.submit(() -> rebuildChunk(chunk)));
+                    after = ids.get(ids.size() - 1);
+                }
+                // keep only a couple of chunks queued per worker instead of every account id
+                while (inFlight.size() >= threads * 2) {
+                    accounts += inFlight.removeFirst().get();
+                }
+            } while (ids.size() == chunkSize);
+
+            while (!inFlight.isEmpty()) {
+                accounts += inFlight.removeFirst().get();
+            }
+            log.info("Rebuilt daily summaries for {} accounts in {} ms",
+                    accounts, (System.nanoTime() - started) / 1_000_000);
+            return accounts;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Summary rebuild interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Summary rebuild failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private int rebuildChunk(List<Long> accountIds) {
+        return transactionTemplate.execute(status -> {
+            bankAccountRepository.lockAllByIdOrdered(accountIds);
+            summaryRepository.deleteByAccountIds(accountIds);
+            summaryRepository.rebuildFromTransactions(accountIds);
+            return accountIds.size();
+        });
+    }
+}
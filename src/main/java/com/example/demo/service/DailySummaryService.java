@@ -0,0 +1,78 @@
+package com.example.demo.service;
+
+import com.example.demo.model.DailyAccountSummaryId;
+import com.example.demo.model.Transaction;
+import com.example.demo.repository.DailyAccountSummaryRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps {@link com.example.demo.model.DailyAccountSummary} in step with transfers.
+ * MANDATORY propagation: a summary change must commit or roll back together with the transfer
+ * that caused it, and the caller already holds the account row locks that serialise the upsert.
+ */
+@Service
+@RequiredArgsConstructor
+public class DailySummaryService {
+
+    private final DailyAccountSummaryRepository summaryRepository;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordTransfer(Long fromAccountId, Long toAccountId, BigDecimal amount, LocalDate day) {
+        upsert(fromAccountId, day, amount, 1, BigDecimal.ZERO, 0, amount);
+        upsert(toAccountId, day, BigDecimal.ZERO, 0, amount, 1, amount);
+    }
+
+    /** Batch variant: folds all transfers per (account, day) first, then one upsert per pair. */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordAll(Collection<Transaction> transactions) {
+        Map<DailyAccountSummaryId, Delta> deltas = new LinkedHashMap<>();
+        for (Transaction tx : transactions) {
+            LocalDate day = tx.getCreatedAt().toLocalDate();
+            deltas.computeIfAbsent(new DailyAccountSummaryId(tx.getFromAccount().getId(), day), id -> new Delta())
+                    .addSent(tx.getAmount());
+            deltas.computeIfAbsent(new DailyAccountSummaryId(tx.getToAccount().getId(), day), id -> new Delta())
+                    .addReceived(tx.getAmount());
+        }
+        deltas.forEach((id, delta) -> upsert(id.getAccountId(), id.getSummaryDate(),
+                delta.sent, delta.sentCount, delta.received, delta.receivedCount, delta.largest));
+    }
+
+    private void upsert(Long accountId, LocalDate day,
+                        BigDecimal sent, long sentCount,
+                        BigDecimal received, long receivedCount,
+                        BigDecimal largest) {
+        int updated = summaryRepository.addToDay(accountId, day, sent, sentCount, received, receivedCount, largest);
+        if (updated == 0) {
+            summaryRepository.insertDay(accountId, day, sent, sentCount, received, receivedCount, largest);
+        }
+    }
+
+    private static final class Delta {
+        private BigDecimal sent = BigDecimal.ZERO;
+        private long sentCount;
+        private BigDecimal received = BigDecimal.ZERO;
+        private long receivedCount;
+        private BigDecimal largest = BigDecimal.ZERO;
+
+        void addSent(BigDecimal amount) {
+            sent = sent.add(amount);
+            sentCount++;
+            largest = largest.max(amount);
+        }
+
+        void addReceived(BigDecimal amount) {
+            received = received.add(amount);
+            receivedCount++;
+            largest = largest.max(amount);
+        }
+    }
+}
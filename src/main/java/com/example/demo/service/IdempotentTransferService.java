@@ -0,0 +1,142 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.TransferRequest;
+import com.example.demo.dto.TransferResponse;
+import com.example.demo.exception.AlreadyExistsException;
+import com.example.demo.exception.BadRequestException;
+import com.example.demo.model.Transaction;
+import com.example.demo.repository.TransactionRepository;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Deduplicates POST /api/transfers by Idempotency-Key. Keys are scoped to the user who sends them:
+ * two users may pick the same key, and each gets their own transfer.
+ *
+ * Three layers, cheapest first:
+ * 1. A bounded, time-expiring in-memory cache of recent keys. A hot retry is answered from it
+ *    without touching the database. The cache holds futures, so a duplicate that arrives while
+ *    the first request is still running waits for that result instead of racing it.
+ * 2. A lookup by (user, key), for retries that outlived the cache entry or reached a node that
+ *    never saw it.
+ * 3. The unique constraint on transactions (idempotency_owner_id, idempotency_key), which settles
+ *    a race between nodes.
+ *
+ * Failed transfers are not remembered: they moved no money, so a retry runs again.
+ */
+@Service
+public class IdempotentTransferService {
+
+    static final int MAX_KEY_LENGTH = 100;
+
+    private final TransferService transferService;
+    private final TransactionRepository transactionRepository;
+    private final AsyncCache<ScopedKey, Outcome> recent;
+
+    public IdempotentTransferService(TransferService transferService,
+                                     TransactionRepository transactionRepository,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${app.idempotency.cache.maximum-size:100000}") long maximumSize,
+                                     @Value("${app.idempotency.cache.ttl:24h}") Duration ttl) {
+        this.transferService = transferService;
+        this.transactionRepository = transactionRepository;
+        this.recent = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, recent.synchronous(), "transfer-idempotency");
+    }
+
+    public TransferResponse transfer(TransferRequest request, Long userId, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return transferService.transfer(request, userId);
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new BadRequestException("Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+
+        CompletableFuture<Outcome> created = new CompletableFuture<>();
+        CompletableFuture<Outcome> existing = recent.get(new ScopedKey(userId, idempotencyKey),
+                (key, executor) -> created);
+        if (existing != created) {
+            return replay(await(existing), request, userId);
+        }
+
+        try {
+            Outcome outcome = execute(request, userId, idempotencyKey);
+            created.complete(outcome);
+            return replay(outcome, request, userId);
+        } catch (RuntimeException e) {
+            // waiters get the same failure; the cache drops failed futures, so a later retry runs again
+            created.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private Outcome execute(TransferRequest request, Long userId, String idempotencyKey) {
+        Optional<Transaction> stored = transactionRepository.findByIdempotencyKey(userId, idempotencyKey);
+        if (stored.isPresent()) {
+            return Outcome.of(stored.get());
+        }
+        try {
+            TransferResponse response = transferService.transfer(request, userId, idempotencyKey);
+            return new Outcome(userId, request.fromAccountId(), request.toAccountId(), response);
+        } catch (DataIntegrityViolationException e) {
+            // another node committed the same key first
+            return transactionRepository.findByIdempotencyKey(userId, idempotencyKey)
+                    .map(Outcome::of)
+                    .orElseThrow(() -> e);
+        }
+    }
+
+    /** The key must be replayed for the same transfer, or it is a client bug. */
+    private static TransferResponse replay(Outcome outcome, TransferRequest request, Long userId) {
+        // every lookup is by (user, key), so another user's outcome here is a bug in this class
+        if (!outcome.ownerId().equals(userId)) {
+            throw new IllegalStateException("Idempotent outcome of user " + outcome.ownerId()
+                    + " looked up for user " + userId);
+        }
+        boolean sameTransfer = outcome.fromAccountId().equals(request.fromAccountId())
+                && outcome.toAccountId().equals(request.toAccountId())
+                && outcome.response().amount().compareTo(request.amount()) == 0;
+        if (!sameTransfer) {
+            throw new AlreadyExistsException("Idempotency-Key was already used for a different transfer");
+        }
+        return outcome.response();
+    }
+
+    private static Outcome await(CompletableFuture<Outcome> pending) {
+        try {
+            return pending.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private record ScopedKey(Long userId, String key) {}
+
+    private record Outcome(Long ownerId, Long fromAccountId, Long toAccountId, TransferResponse response) {
+
+        static Outcome of(Transaction tx) {
+            return new Outcome(
+                    tx.getIdempotencyOwnerId(),
+                    tx.getFromAccount().getId(),
+                    tx.getToAccount().getId(),
+                    TransferResponse.from(tx));
+        }
+    }
+}
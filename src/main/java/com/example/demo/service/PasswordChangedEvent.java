@@ -0,0 +1,4 @@
+package com.example.demo.service;
+
+/** Published when a user's password hash changes; credential caches must forget the user. */
+public record PasswordChangedEvent(String email) {}
@@ -0,0 +1,138 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.ReportResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Report cache that knows which reports can still change.
+ *
+ * A report whose window has already ended is immutable: it stays until size-based eviction.
+ * A report for the current, open window is dropped as soon as a transfer touching the account
+ * commits. It also gets a short TTL, as a backstop for transfers committed on other nodes.
+ * A window counts as open until one TTL after its end: a transfer stamped just before the end
+ * can commit just after it, and another node's load may not see that commit yet.
+ *
+ * Invalidation is race-free against an in-flight load: Cache.get computes under the entry's
+ * lock and invalidate waits for it, so a load that read pre-commit data cannot outlive the
+ * invalidation that follows the commit.
+ *
+ * An open key is registered for invalidation by its own load, and forgotten by the eviction
+ * listener, which Caffeine runs synchronously inside the removal. Both hold the entry's lock, so
+ * a stale removal can never unregister a key that has been loaded again since. Explicit
+ * invalidations do not reach the listener: the commit handler has unregistered those keys itself.
+ *
+ * Hit/miss, load time, size and evictions are published as cache.* meters tagged cache=reports,
+ * plus cache.hit.ratio, on the actuator metrics endpoint.
+ */
+@Component
+public class ReportCache {
+
+    private final Cache<Key, ReportResponse> cache;
+    private final Map<Long, Set<Key>> openKeysByAccount = new ConcurrentHashMap<>();
+    private final Duration openPeriodTtl;
+
+    public ReportCache(MeterRegistry meterRegistry,
+                       @Value("${app.reports.cache.maximum-size:10000}") long maximumSize,
+                       @Value("${app.reports.cache.open-period-ttl:5m}") Duration openPeriodTtl) {
+        this(meterRegistry, maximumSize, openPeriodTtl, Ticker.systemTicker());
+    }
+
+    // tests: a ticker that moves the cache's clock without waiting out the TTL
+    ReportCache(MeterRegistry meterRegistry, long maximumSize, Duration openPeriodTtl, Ticker ticker) {
+        this.openPeriodTtl = openPeriodTtl;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new ClosedPeriodsNeverExpire(openPeriodTtl))
+                .ticker(ticker)
+                .evictionListener((Key key, ReportResponse report, RemovalCause cause) -> {
+                    if (key != null) {
+                        forgetOpenKey(key);
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "reports");
+        Gauge.builder("cache.hit.ratio", cache, c -> c.stats().hitRate())
+                .tag("cache", "reports")
+                .register(meterRegistry);
+    }
+
+    ReportResponse get(Long accountId, ReportRange range, Supplier<ReportResponse> loader) {
+        return cache.get(new Key(accountId, range), key -> {
+            if (open(key)) {
+                // register before loading so an invalidation racing with the load always sees the key
+                openKeysByAccount.compute(accountId, (id, keys) -> {
+                    Set<Key> registered = keys != null ? keys : ConcurrentHashMap.newKeySet();
+                    registered.add(key);
+                    return registered;
+                });
+            }
+            return loader.get();
+        });
+    }
+
+    @TransactionalEventListener
+    public void onTransferCommitted(TransferCommittedEvent event) {
+        for (Long accountId : event.accountIds()) {
+            Set<Key> keys = openKeysByAccount.remove(accountId);
+            if (keys != null) {
+                cache.invalidateAll(keys);
+            }
+        }
+    }
+
+    private void forgetOpenKey(Key key) {
+        openKeysByAccount.computeIfPresent(key.accountId(), (id, keys) -> {
+            keys.remove(key);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+
+    /** Transfers can still change the report: its window has not ended, or only within the last TTL. */
+    private boolean open(Key key) {
+        return key.range().end().plus(openPeriodTtl).isAfter(LocalDateTime.now());
+    }
+
+    private record Key(Long accountId, ReportRange range) {}
+
+    private final class ClosedPeriodsNeverExpire implements Expiry<Key, ReportResponse> {
+
+        private final long openPeriodTtlNanos;
+
+        ClosedPeriodsNeverExpire(Duration openPeriodTtl) {
+            this.openPeriodTtlNanos = openPeriodTtl.toNanos();
+        }
+
+        @Override
+        public long expireAfterCreate(Key key, ReportResponse report, long currentTime) {
+            return open(key) ? openPeriodTtlNanos : Long.MAX_VALUE;
+        }
+
+        @Override
+        public long expireAfterUpdate(Key key, ReportResponse report, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, report, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(Key key, ReportResponse report, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
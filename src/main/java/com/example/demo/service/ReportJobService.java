@@ -0,0 +1,163 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.ReportJobResponse;
+import com.example.demo.dto.ReportPeriod;
+import com.example.demo.dto.ReportResponse;
+import com.example.demo.exception.NotFoundException;
+import com.example.demo.exception.TooManyRequestsException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs reports off the request threads: submit returns a job id immediately (202 Accepted) and
+ * the aggregation runs on a small executor of its own, so heavy analytics can never occupy the
+ * Tomcat threads that serve transfers.
+ *
+ * - Backpressure: the executor queue is bounded; when it is full, submit fails with 429.
+ * - Deduplication: an identical request (same owner, account and resolved window) while a job
+ *   is pending or running gets that job's id instead of a second job.
+ * - Retention: finished jobs stay pollable for a TTL, then disappear.
+ */
+@Slf4j
+@Service
+public class ReportJobService {
+
+    private static final String QUEUE_FULL = "Report queue is full, retry later";
+
+    private final ReportService reportService;
+    private final ThreadPoolExecutor executor;
+    private final Map<DedupKey, Job> inFlightByRequest = new ConcurrentHashMap<>();
+    private final Map<String, Job> inFlight = new ConcurrentHashMap<>();
+    private final Cache<String, Job> finished;
+
+    public ReportJobService(ReportService reportService,
+                            @Value("${app.reports.async.threads:2}") int threads,
+                            @Value("${app.reports.async.queue-capacity:100}") int queueCapacity,
+                            @Value("${app.reports.async.result-ttl:10m}") Duration resultTtl,
+                            @Value("${app.reports.async.max-results:10000}") long maxResults) {
+        this.reportService = reportService;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "report-job-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.finished = Caffeine.newBuilder()
+                .expireAfterWrite(resultTtl)
+                .maximumSize(maxResults)
+                .build();
+    }
+
+    public ReportJobResponse submit(Long userId, Long accountId, ReportPeriod period,
+                                    LocalDateTime from, LocalDateTime to) {
+        ReportRange range = ReportRange.resolve(period, from, to, LocalDate.now());
+        DedupKey key = new DedupKey(userId, accountId, range);
+
+        // pollable by id before a duplicate can be handed that id
+        Job created = new Job(UUID.randomUUID().toString(), userId);
+        inFlight.put(created.id, created);
+        Job existing = inFlightByRequest.putIfAbsent(key, created);
+        if (existing != null) {
+            inFlight.remove(created.id);
+            return existing.toResponse();
+        }
+        try {
+            executor.execute(() -> run(created, key, accountId, range));
+        } catch (RejectedExecutionException e) {
+            // a duplicate may already hold this id: leave it a FAILED job to poll, not a 404
+            created.error = QUEUE_FULL;
+            created.status = Status.FAILED;
+            finish(created, key);
+            throw new TooManyRequestsException(QUEUE_FULL);
+        }
+        return created.toResponse();
+    }
+
+    /** Unknown, expired and other users' jobs all look the same: not found. */
+    public ReportJobResponse get(Long userId, String jobId) {
+        Job job = inFlight.get(jobId);
+        if (job == null) {
+            job = finished.getIfPresent(jobId);
+        }
+        if (job == null || !job.ownerId.equals(userId)) {
+            throw new NotFoundException("Report job not found");
+        }
+        return job.toResponse();
+    }
+
+    private void run(Job job, DedupKey key, Long accountId, ReportRange range) {
+        job.status = Status.RUNNING;
+        try {
+            job.result = reportService.report(accountId, range);
+            job.status = Status.DONE;
+        } catch (RuntimeException e) {
+            log.warn("Report job {} failed", job.id, e);
+            job.error = e.getMessage();
+            job.status = Status.FAILED;
+        } finally {
+            finish(job, key);
+        }
+    }
+
+    private void finish(Job job, DedupKey key) {
+        // publish to the finished cache before leaving in-flight, so a poll never sees a gap
+        finished.put(job.id, job);
+        inFlight.remove(job.id);
+        inFlightByRequest.remove(key, job);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private enum Status {
+        PENDING,
+        RUNNING,
+        DONE,
+        FAILED
+    }
+
+    private record DedupKey(Long userId, Long accountId, ReportRange range) {}
+
+    private static final class Job {
+        private final String id;
+        private final Long ownerId;
+        private volatile Status status = Status.PENDING;
+        private volatile ReportResponse result;
+        private volatile String error;
+
+        Job(String id, Long ownerId) {
+            this.id = id;
+            this.ownerId = ownerId;
+        }
+
+        ReportJobResponse toResponse() {
+            // status is written last by the worker, so reading it first gives a consistent view
+            Status current = status;
+            return new ReportJobResponse(id, current.name(),
+                    current == Status.DONE ? result : null,
+                    current == Status.FAILED ? error : null);
+        }
+    }
+}
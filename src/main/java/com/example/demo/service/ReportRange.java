@@ -0,0 +1,49 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.ReportPeriod;
+import com.example.demo.exception.BadRequestException;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * A half-open [start, end) report window. WEEKLY and MONTHLY are aligned to the calendar week
+ * (Monday) or month containing {@code from}, or today when {@code from} is omitted.
+ */
+record ReportRange(ReportPeriod period, LocalDateTime start, LocalDateTime end) {
+
+    static ReportRange resolve(ReportPeriod period, LocalDateTime from, LocalDateTime to, LocalDate today) {
+        LocalDate anchor = from != null ? from.toLocalDate() : today;
+        return switch (period) {
+            case WEEKLY -> {
+                LocalDate monday = anchor.with(DayOfWeek.MONDAY);
+                yield new ReportRange(period, monday.atStartOfDay(), monday.plusWeeks(1).atStartOfDay());
+            }
+            case MONTHLY -> {
+                LocalDate first = anchor.withDayOfMonth(1);
+                yield new ReportRange(period, first.atStartOfDay(), first.plusMonths(1).atStartOfDay());
+            }
+            case CUSTOM -> {
+                if (from == null || to == null) {
+                    throw new BadRequestException("CUSTOM reports need both from and to");
+                }
+                if (!from.isBefore(to)) {
+                    throw new BadRequestException("from must be before to");
+                }
+                yield new ReportRange(period, from, to);
+            }
+        };
+    }
+
+    /** First day fully inside the window. */
+    LocalDate firstFullDay() {
+        LocalDate day = start.toLocalDate();
+        return start.equals(day.atStartOfDay()) ? day : day.plusDays(1);
+    }
+
+    /** Day after the last day fully inside the window. */
+    LocalDate endFullDay() {
+        return end.toLocalDate();
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.ReportPeriod;
+import com.example.demo.dto.ReportResponse;
+import com.example.demo.repository.DailyAccountSummaryRepository;
+import com.example.demo.repository.ReportTotals;
+import com.example.demo.repository.TransactionRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Service
+@RequiredArgsConstructor
+public class ReportService {
+
+    private final DailyAccountSummaryRepository summaryRepository;
+    private final TransactionRepository transactionRepository;
+    private final ReportCache reportCache;
+
+    /**
+     * Served from {@link ReportCache} when possible.
+     * Whole days come from the daily summary table, one row per day. Raw transactions are
+     * aggregated in SQL only for the partial days at either edge of a CUSTOM window.
+     * A yearly report therefore reads about 365 summary rows, however busy the account is.
+     */
+    public ReportResponse report(Long accountId, ReportPeriod period, LocalDateTime from, LocalDateTime to) {
+        return report(accountId, ReportRange.resolve(period, from, to, LocalDate.now()));
+    }
+
+    ReportResponse report(Long accountId, ReportRange range) {
+        return reportCache.get(accountId, range, () -> compute(accountId, range));
+    }
+
+    private ReportResponse compute(Long accountId, ReportRange range) {
+        LocalDate firstFullDay = range.firstFullDay();
+        LocalDate endFullDay = range.endFullDay();
+
+        ReportTotals totals;
+        if (!firstFullDay.isBefore(endFullDay)) {
+            // window shorter than a day boundary to boundary: nothing to take from summaries
+            totals = raw(accountId, range.start(), range.end());
+        } else {
+            totals = summaryRepository.sumDays(accountId, firstFullDay, endFullDay);
+            if (range.start().isBefore(firstFullDay.atStartOfDay())) {
+                totals = totals.plus(raw(accountId, range.start(), firstFullDay.atStartOfDay()));
+            }
+            if (endFullDay.atStartOfDay().isBefore(range.end())) {
+                totals = totals.plus(raw(accountId, endFullDay.atStartOfDay(), range.end()));
+            }
+        }
+
+        return new ReportResponse(
+                accountId,
+                range.period(),
+                range.start(),
+                range.end(),
+                totals.totalSent(),
+                totals.totalReceived(),
+                totals.totalReceived().subtract(totals.totalSent()),
+                totals.sentCount() + totals.receivedCount(),
+                totals.largest());
+    }
+
+    private ReportTotals raw(Long accountId, LocalDateTime from, LocalDateTime to) {
+        return ReportTotals.sent(transactionRepository.sumSent(accountId, from, to))
+                .plus(ReportTotals.received(transactionRepository.sumReceived(accountId, from, to)));
+    }
+}
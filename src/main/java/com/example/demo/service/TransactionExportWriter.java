@@ -0,0 +1,67 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.ExportFormat;
+import com.example.demo.dto.TransactionResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes one transaction per line, straight to the response stream — nothing is accumulated.
+ */
+class TransactionExportWriter {
+
+    private static final byte[] NEWLINE = {'\n'};
+    private static final String CSV_HEADER =
+            "id,fromAccountNumber,toAccountNumber,amount,currency,status,direction,description,createdAt\n";
+
+    private final ExportFormat format;
+    private final ObjectMapper objectMapper;
+    private final OutputStream out;
+
+    TransactionExportWriter(ExportFormat format, ObjectMapper objectMapper, OutputStream out) {
+        this.format = format;
+        this.objectMapper = objectMapper;
+        this.out = out;
+    }
+
+    void writeHeader() throws IOException {
+        if (format == ExportFormat.CSV) {
+            out.write(CSV_HEADER.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    void write(TransactionResponse tx) throws IOException {
+        if (format == ExportFormat.NDJSON) {
+            out.write(objectMapper.writeValueAsBytes(tx));
+            out.write(NEWLINE);
+            return;
+        }
+        String line = tx.id() + "," +
+                csv(tx.fromAccountNumber()) + "," +
+                csv(tx.toAccountNumber()) + "," +
+                tx.amount().toPlainString() + "," +
+                csv(tx.currency()) + "," +
+                tx.status() + "," +
+                tx.direction() + "," +
+                csv(tx.description()) + "," +
+                tx.createdAt() + "\n";
+        out.write(line.getBytes(StandardCharsets.UTF_8));
+    }
+
+    void flush() throws IOException {
+        out.flush();
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -1,53 +1,114 @@
 package com.example.demo.service;
 
+import com.example.demo.dto.ExportFormat;
+import com.example.demo.dto.TransactionPage;
+import com.example.demo.dto.TransactionResponse;
+import com.example.demo.exception.BadRequestException;
 import com.example.demo.model.Transaction;
+import com.example.demo.repository.TransactionCursor;
+import com.example.demo.repository.TransactionFilter;
 import com.example.demo.repository.TransactionRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
-import java.time.LocalDateTime;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
 @Service
 @RequiredArgsConstructor
 public class TransactionService {
 
+    public static final int MAX_PAGE_SIZE = 200;
+    public static final int EXPORT_BATCH_SIZE = 500;
+
+    /** Newest first, id as the tie-breaker — the same order the keyset queries use. */
+    private static final Comparator<Transaction> NEWEST_FIRST = Comparator
+            .comparing(Transaction::getCreatedAt)
+            .thenComparing(Transaction::getId)
+            .reversed();
+
     private final TransactionRepository transactionRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Keyset-paginated history, newest first, ordered by (createdAt, id).
+     * All filters run in SQL. Sent and received rows are read with one range scan each on
+     * their own (account, created_at, id) index, each capped at limit + 1 rows, and merged here.
+     * Account numbers come from the same statements, so a page costs one or two queries whatever
+     * its size.
+     * Work and memory per call depend on the page size, not on the size of the account history.
+     */
+    @Transactional(readOnly = true)
+    public TransactionPage getHistory(Long accountId, TransactionFilter filter, String cursor, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new BadRequestException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        // one extra row tells us whether another page exists
+        List<Transaction> rows = readPage(accountId, filter, TransactionCursor.decode(cursor), limit + 1);
+
+        boolean hasMore = rows.size() > limit;
+        List<Transaction> page = hasMore ? rows.subList(0, limit) : rows;
+        String nextCursor = hasMore ? cursorAfter(page).encode() : null;
+
+        return new TransactionPage(
+                page.stream().map(tx -> TransactionResponse.from(tx, accountId)).toList(),
+                nextCursor);
+    }
 
     /**
-     * Deliberately naive transaction history:
-     * 1. Loads ALL transactions for the account into memory (no pagination)
-     * 2. Filters in Java instead of pushing predicates to SQL
-     * 3. Returns the entire result set in one response
-     *
-     * This will blow up when an account has thousands of transactions:
-     * - GC pressure from large List<Transaction>
-     * - Slow response times from serializing huge payloads
-     * - DB doing a full scan with no useful indexes
+     * Streams the full filtered history, newest first, in fixed-size keyset batches.
+     * Each batch is written and flushed before the next one is read, and the persistence
+     * context is cleared in between, so heap use stays flat however long the history is.
+     * Deliberately not one transaction: a slow client must not pin a connection for the
+     * whole download.
      */
-    public List<Transaction> getHistory(Long accountId,
-                                        LocalDateTime from,
-                                        LocalDateTime to,
-                                        String direction,
-                                        BigDecimal minAmount,
-                                        BigDecimal maxAmount) {
-
-        // Load ALL transactions — no limit, no pagination
-        List<Transaction> all = transactionRepository.findAllByAccountId(accountId);
-
-        // Filter in Java instead of SQL — wastes memory and CPU
-        return all.stream()
-                .filter(tx -> from == null || !tx.getCreatedAt().isBefore(from))
-                .filter(tx -> to == null || !tx.getCreatedAt().isAfter(to))
-                .filter(tx -> {
-                    if (direction == null || direction.equalsIgnoreCase("ALL")) return true;
-                    if (direction.equalsIgnoreCase("IN")) return tx.getToAccount().getId().equals(accountId);
-                    if (direction.equalsIgnoreCase("OUT")) return tx.getFromAccount().getId().equals(accountId);
-                    return true;
-                })
-                .filter(tx -> minAmount == null || tx.getAmount().compareTo(minAmount) >= 0)
-                .filter(tx -> maxAmount == null || tx.getAmount().compareTo(maxAmount) <= 0)
-                .toList();
+    public void exportHistory(Long accountId,
+                              TransactionFilter filter,
+                              ExportFormat format,
+                              OutputStream out) throws IOException {
+        TransactionExportWriter writer = new TransactionExportWriter(format, objectMapper, out);
+        writer.writeHeader();
+
+        TransactionCursor after = null;
+        List<Transaction> batch;
+        do {
+            batch = readPage(accountId, filter, after, EXPORT_BATCH_SIZE);
+            for (Transaction tx : batch) {
+                writer.write(TransactionResponse.from(tx, accountId));
+            }
+            writer.flush();
+            if (!batch.isEmpty()) {
+                after = cursorAfter(batch);
+            }
+            entityManager.clear();
+        } while (batch.size() == EXPORT_BATCH_SIZE);
+    }
+
+    /** Up to {@code fetch} rows after the cursor, merged from the sent and received index scans. */
+    private List<Transaction> readPage(Long accountId, TransactionFilter filter, TransactionCursor after, int fetch) {
+        return switch (filter.direction()) {
+            case IN -> transactionRepository.findHistoryPage(accountId, true, filter, after, fetch);
+            case OUT -> transactionRepository.findHistoryPage(accountId, false, filter, after, fetch);
+            case ALL -> {
+                List<Transaction> merged = new ArrayList<>(2 * fetch);
+                merged.addAll(transactionRepository.findHistoryPage(accountId, false, filter, after, fetch));
+                merged.addAll(transactionRepository.findHistoryPage(accountId, true, filter, after, fetch));
+                merged.sort(NEWEST_FIRST);
+                yield merged.size() > fetch ? merged.subList(0, fetch) : merged;
+            }
+        };
+    }
+
+    private static TransactionCursor cursorAfter(List<Transaction> page) {
+        Transaction last = page.get(page.size() - 1);
+        return new TransactionCursor(last.getCreatedAt(), last.getId());
     }
 }
@@ -0,0 +1,9 @@
+package com.example.demo.service;
+
+import java.util.Set;
+
+/**
+ * Published inside a transfer's transaction; listeners use AFTER_COMMIT so they only ever react
+ * to money that actually moved.
+ */
+public record TransferCommittedEvent(Set<Long> accountIds) {}
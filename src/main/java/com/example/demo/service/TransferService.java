@@ -1,63 +1,214 @@
 package com.example.demo.service;
 
+import com.example.demo.dto.TransferBatchResponse;
 import com.example.demo.dto.TransferRequest;
+import com.example.demo.dto.TransferResponse;
 import com.example.demo.exception.BadRequestException;
 import com.example.demo.exception.InsufficientFundsException;
+import com.example.demo.exception.NotFoundException;
 import com.example.demo.model.BankAccount;
 import com.example.demo.model.Transaction;
 import com.example.demo.model.TransactionStatus;
+import com.example.demo.repository.BankAccountRepository;
 import com.example.demo.repository.TransactionRepository;
+import com.example.demo.repository.TransferParty;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
 @Service
 @RequiredArgsConstructor
 public class TransferService {
 
-    private final BankAccountService bankAccountService;
+    /** Keeps each FOR UPDATE's IN list well under driver bind-parameter limits. */
+    private static final int LOCK_CHUNK_SIZE = 1_000;
+
+    private final BankAccountRepository bankAccountRepository;
     private final TransactionRepository transactionRepository;
+    private final DailySummaryService dailySummaryService;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
-     * Deliberately naive transfer — no locking, no idempotency key.
-     * Two concurrent transfers from the same account can both pass the balance check
-     * and cause an overdraft (lost update / race condition).
+     * The transfer itself is four statements: one projection read for validation, two balance UPDATEs,
+     * one INSERT. Balances are never read-modified-written in Java — the debit is a conditional
+     * UPDATE, so the funds check and the write happen atomically under the row lock.
+     * The two UPDATEs run in ascending account-id order, so crossing transfers always lock
+     * rows in the same order and cannot deadlock. If the debit finds insufficient funds,
+     * the exception rolls back a credit that may already have been applied.
+     * The two daily summary upserts run in the same transaction, under the same row locks.
      */
     @Transactional
-    public Transaction transfer(TransferRequest request, String userEmail) {
-        if (request.fromAccountId().equals(request.toAccountId())) {
+    public TransferResponse transfer(TransferRequest request, Long userId) {
+        return transfer(request, userId, null);
+    }
+
+    /**
+     * Same as {@link #transfer(TransferRequest, Long)}, recording the client's idempotency key, and
+     * the user it belongs to, on the transaction row. A key the same user already used fails the
+     * insert on the unique constraint.
+     */
+    @Transactional
+    public TransferResponse transfer(TransferRequest request, Long userId, String idempotencyKey) {
+        Long fromId = request.fromAccountId();
+        Long toId = request.toAccountId();
+        if (fromId.equals(toId)) {
             throw new BadRequestException("Cannot transfer to the same account");
         }
 
-        BankAccount from = bankAccountService.getById(request.fromAccountId());
-        BankAccount to = bankAccountService.getById(request.toAccountId());
+        Map<Long, TransferParty> parties = bankAccountRepository.findTransferParties(List.of(fromId, toId))
+                .stream()
+                .collect(Collectors.toMap(TransferParty::id, Function.identity()));
+        TransferParty from = parties.get(fromId);
+        TransferParty to = parties.get(toId);
+        if (from == null || to == null) {
+            throw new NotFoundException("Account not found");
+        }
 
         // Verify the sender owns the source account
-        if (!from.getUser().getEmail().equals(userEmail)) {
+        if (!from.ownerId().equals(userId)) {
             throw new BadRequestException("You do not own the source account");
         }
 
-        if (!from.getCurrency().equals(to.getCurrency())) {
+        if (!from.currency().equals(to.currency())) {
             throw new BadRequestException(
-                    "Currency mismatch: " + from.getCurrency() + " vs " + to.getCurrency());
+                    "Currency mismatch: " + from.currency() + " vs " + to.currency());
         }
 
-        if (from.getBalance().compareTo(request.amount()) < 0) {
-            throw new InsufficientFundsException("Insufficient funds");
+        if (fromId < toId) {
+            debit(fromId, request.amount());
+            bankAccountRepository.credit(toId, request.amount());
+        } else {
+            bankAccountRepository.credit(toId, request.amount());
+            debit(fromId, request.amount());
         }
 
-        // Naive read-modify-write — race condition lives here
-        from.setBalance(from.getBalance().subtract(request.amount()));
-        to.setBalance(to.getBalance().add(request.amount()));
-
         Transaction tx = new Transaction();
-        tx.setFromAccount(from);
-        tx.setToAccount(to);
+        tx.setFromAccount(bankAccountRepository.getReferenceById(fromId));
+        tx.setToAccount(bankAccountRepository.getReferenceById(toId));
         tx.setAmount(request.amount());
-        tx.setCurrency(from.getCurrency());
+        tx.setCurrency(from.currency());
         tx.setStatus(TransactionStatus.COMPLETED);
         tx.setDescription(request.description());
+        tx.setIdempotencyKey(idempotencyKey);
+        tx.setIdempotencyOwnerId(idempotencyKey != null ? userId : null);
+
+        // flush here so a duplicate idempotency key surfaces from this call, not from the commit
+        Transaction saved = transactionRepository.saveAndFlush(tx);
+        dailySummaryService.recordTransfer(fromId, toId, request.amount(), saved.getCreatedAt().toLocalDate());
+        eventPublisher.publishEvent(new TransferCommittedEvent(Set.of(fromId, toId)));
+
+        return TransferResponse.from(saved, from.accountNumber(), to.accountNumber());
+    }
+
+    /**
+     * Applies many transfers in one database transaction.
+     * Every involved account is locked exactly once, with SELECT ... FOR UPDATE in ascending id
+     * order, which is the same global order single transfers use, so batches cannot deadlock with
+     * them or with each other. Items are then validated and applied in request order against the
+     * locked balances. An item that fails validation gets its own FAILED result and does not
+     * affect the others. The Transaction rows are inserted with JDBC batching, which the pooled
+     * sequence id generator allows, and the balance UPDATEs are flushed the same way.
+     * Daily summaries get one upsert per (account, day) for the whole batch.
+     */
+    @Transactional
+    public TransferBatchResponse transferBatch(List<TransferRequest> requests, Long userId) {
+        List<Long> ids = requests.stream()
+                .flatMap(r -> Stream.of(r.fromAccountId(), r.toAccountId()))
+                .distinct()
+                .sorted()
+                .toList();
+        Map<Long, BankAccount> accounts = new HashMap<>();
+        for (int i = 0; i < ids.size(); i += LOCK_CHUNK_SIZE) {
+            for (BankAccount account : bankAccountRepository.lockAllByIdOrdered(
+                    ids.subList(i, Math.min(i + LOCK_CHUNK_SIZE, ids.size())))) {
+                accounts.put(account.getId(), account);
+            }
+        }
 
-        return transactionRepository.save(tx);
+        TransferBatchResponse.Item[] results = new TransferBatchResponse.Item[requests.size()];
+        List<Transaction> transactions = new ArrayList<>();
+        List<Integer> transactionIndexes = new ArrayList<>();
+        for (int index = 0; index < requests.size(); index++) {
+            TransferRequest request = requests.get(index);
+            BankAccount from = accounts.get(request.fromAccountId());
+            BankAccount to = accounts.get(request.toAccountId());
+            String error = validate(request, from, to, userId);
+            if (error != null) {
+                results[index] = TransferBatchResponse.Item.failed(index, error);
+                continue;
+            }
+
+            from.setBalance(from.getBalance().subtract(request.amount()));
+            to.setBalance(to.getBalance().add(request.amount()));
+
+            Transaction tx = new Transaction();
+            tx.setFromAccount(from);
+            tx.setToAccount(to);
+            tx.setAmount(request.amount());
+            tx.setCurrency(from.getCurrency());
+            tx.setStatus(TransactionStatus.COMPLETED);
+            tx.setDescription(request.description());
+            transactions.add(tx);
+            transactionIndexes.add(index);
+        }
+
+        transactionRepository.saveAll(transactions);
+        transactionRepository.flush();
+        dailySummaryService.recordAll(transactions);
+        if (!transactions.isEmpty()) {
+            Set<Long> touched = new HashSet<>();
+            for (Transaction tx : transactions) {
+                touched.add(tx.getFromAccount().getId());
+                touched.add(tx.getToAccount().getId());
+            }
+            eventPublisher.publishEvent(new TransferCommittedEvent(touched));
+        }
+
+        for (int i = 0; i < transactions.size(); i++) {
+            int index = transactionIndexes.get(i);
+            Transaction tx = transactions.get(i);
+            results[index] = TransferBatchResponse.Item.completed(index, TransferResponse.from(
+                    tx, tx.getFromAccount().getAccountNumber(), tx.getToAccount().getAccountNumber()));
+        }
+        return new TransferBatchResponse(
+                transactions.size(), requests.size() - transactions.size(), List.of(results));
+    }
+
+    /** Same rules as a single transfer, checked against the locked in-memory balances. */
+    private static String validate(TransferRequest request, BankAccount from, BankAccount to, Long userId) {
+        if (request.fromAccountId().equals(request.toAccountId())) {
+            return "Cannot transfer to the same account";
+        }
+        if (from == null || to == null) {
+            return "Account not found";
+        }
+        if (!from.getUser().getId().equals(userId)) {
+            return "You do not own the source account";
+        }
+        if (!from.getCurrency().equals(to.getCurrency())) {
+            return "Currency mismatch: " + from.getCurrency() + " vs " + to.getCurrency();
+        }
+        if (from.getBalance().compareTo(request.amount()) < 0) {
+            return "Insufficient funds";
+        }
+        return null;
+    }
+
+    private void debit(Long accountId, BigDecimal amount) {
+        if (bankAccountRepository.debit(accountId, amount) == 0) {
+            throw new InsufficientFundsException("Insufficient funds");
+        }
     }
 }
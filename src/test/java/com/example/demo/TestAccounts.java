@@ -0,0 +1,56 @@
+package com.example.demo;
+
+import com.example.demo.model.BankAccount;
+import com.example.demo.model.User;
+import com.example.demo.repository.BankAccountRepository;
+import com.example.demo.repository.UserRepository;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Saves users and bank accounts for integration tests. Emails and account numbers are unique for
+ * the whole test run, so tests can share a database without clashing on the unique columns.
+ */
+public final class TestAccounts {
+
+    private static final AtomicLong NEXT_ACCOUNT_NUMBER = new AtomicLong(1_000_000_000L);
+
+    private final UserRepository userRepository;
+    private final BankAccountRepository bankAccountRepository;
+
+    public TestAccounts(UserRepository userRepository, BankAccountRepository bankAccountRepository) {
+        this.userRepository = userRepository;
+        this.bankAccountRepository = bankAccountRepository;
+    }
+
+    public User newUser() {
+        User user = new User();
+        user.setEmail("test-" + UUID.randomUUID() + "@example.com");
+        user.setPassword("not-used");
+        user.setFullName("Test User");
+        return userRepository.save(user);
+    }
+
+    public BankAccount newAccount(User owner) {
+        return newAccount(owner, BigDecimal.ZERO);
+    }
+
+    public BankAccount newAccount(User owner, BigDecimal balance) {
+        return newAccount(owner, balance, "USD");
+    }
+
+    public BankAccount newAccount(User owner, BigDecimal balance, String currency) {
+        BankAccount account = new BankAccount();
+        account.setUser(owner);
+        account.setAccountNumber(String.valueOf(NEXT_ACCOUNT_NUMBER.getAndIncrement()));
+        account.setBalance(balance);
+        account.setCurrency(currency);
+        return bankAccountRepository.save(account);
+    }
+
+    public BigDecimal balanceOf(BankAccount account) {
+        return bankAccountRepository.findById(account.getId()).orElseThrow().getBalance();
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.demo.controller;
+
+import com.example.demo.TestAccounts;
+import com.example.demo.config.AuthenticatedUser;
+import com.example.demo.dto.TransferBatchRequest;
+import com.example.demo.dto.TransferRequest;
+import com.example.demo.model.BankAccount;
+import com.example.demo.model.User;
+import com.example.demo.repository.BankAccountRepository;
+import com.example.demo.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:transfer-batch-api",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureMockMvc
+class TransferControllerBatchTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BankAccountRepository bankAccountRepository;
+
+    private TestAccounts testAccounts;
+    private User owner;
+    private BankAccount source;
+    private BankAccount target;
+
+    @BeforeEach
+    void setUp() {
+        testAccounts = new TestAccounts(userRepository, bankAccountRepository);
+        owner = testAccounts.newUser();
+        source = testAccounts.newAccount(owner, new BigDecimal("100.00"));
+        target = testAccounts.newAccount(owner);
+    }
+
+    @Test
+    void batchReturnsOneResultPerItemInRequestOrder() throws Exception {
+        mockMvc.perform(batch(
+                        new TransferRequest(source.getId(), target.getId(), new BigDecimal("70.00"), "rent"),
+                        new TransferRequest(source.getId(), target.getId(), new BigDecimal("70.00"), null),
+                        new TransferRequest(target.getId(), source.getId(), new BigDecimal("20.00"), null))
+                        .with(user(principal(owner))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.completed").value(2))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.results[0].index").value(0))
+                .andExpect(jsonPath("$.results[0].status").value("COMPLETED"))
+                .andExpect(jsonPath("$.results[0].transfer.fromAccountNumber").value(source.getAccountNumber()))
+                .andExpect(jsonPath("$.results[0].transfer.description").value("rent"))
+                .andExpect(jsonPath("$.results[1].status").value("FAILED"))
+                .andExpect(jsonPath("$.results[1].error").value("Insufficient funds"))
+                .andExpect(jsonPath("$.results[2].status").value("COMPLETED"));
+
+        assertEquals(0, new BigDecimal("50.00").compareTo(testAccounts.balanceOf(source)));
+        assertEquals(0, new BigDecimal("50.00").compareTo(testAccounts.balanceOf(target)));
+    }
+
+    @Test
+    void sourceOwnershipIsCheckedAgainstTheAuthenticatedUser() throws Exception {
+        User stranger = testAccounts.newUser();
+
+        mockMvc.perform(batch(new TransferRequest(source.getId(), target.getId(), BigDecimal.ONE, null))
+                        .with(user(principal(stranger))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.results[0].error").value("You do not own the source account"));
+
+        assertEquals(0, new BigDecimal("100.00").compareTo(testAccounts.balanceOf(source)));
+    }
+
+    @Test
+    void emptyBatchIsRejected() throws Exception {
+        mockMvc.perform(batch().with(user(principal(owner))))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", containsString("transfers")));
+    }
+
+    @Test
+    void invalidItemRejectsTheWholeBatch() throws Exception {
+        mockMvc.perform(batch(
+                        new TransferRequest(source.getId(), target.getId(), BigDecimal.ONE, null),
+                        new TransferRequest(source.getId(), target.getId(), new BigDecimal("-5.00"), null))
+                        .with(user(principal(owner))))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", containsString("transfers[1].amount")));
+
+        assertEquals(0, new BigDecimal("100.00").compareTo(testAccounts.balanceOf(source)));
+    }
+
+    @Test
+    void batchRequiresAuthentication() throws Exception {
+        mockMvc.perform(batch(new TransferRequest(source.getId(), target.getId(), BigDecimal.ONE, null)))
+                .andExpect(status().isUnauthorized());
+    }
+
+    private MockHttpServletRequestBuilder batch(TransferRequest... transfers) throws Exception {
+        return post("/api/transfers/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new TransferBatchRequest(List.of(transfers))));
+    }
+
+    private static AuthenticatedUser principal(User user) {
+        return new AuthenticatedUser(user.getId(), user.getEmail(), "not-used", List.of());
+    }
+}
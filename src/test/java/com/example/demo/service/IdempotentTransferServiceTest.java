@@ -0,0 +1,124 @@
+package com.example.demo.service;
+
+import com.example.demo.TestAccounts;
+import com.example.demo.dto.TransferRequest;
+import com.example.demo.dto.TransferResponse;
+import com.example.demo.exception.AlreadyExistsException;
+import com.example.demo.model.BankAccount;
+import com.example.demo.model.User;
+import com.example.demo.repository.BankAccountRepository;
+import com.example.demo.repository.TransactionRepository;
+import com.example.demo.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:transfer-idempotency",
+        "spring.jpa.show-sql=false"
+})
+class IdempotentTransferServiceTest {
+
+    private static final BigDecimal OPENING_BALANCE = new BigDecimal("100.00");
+    private static final BigDecimal AMOUNT = new BigDecimal("10.00");
+
+    @Autowired
+    private IdempotentTransferService idempotentTransferService;
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BankAccountRepository bankAccountRepository;
+
+    private TestAccounts testAccounts;
+    private String key;
+
+    @BeforeEach
+    void setUp() {
+        testAccounts = new TestAccounts(userRepository, bankAccountRepository);
+        key = UUID.randomUUID().toString();
+    }
+
+    @Test
+    void retryWithTheSameKeyReplaysTheFirstTransfer() {
+        Party alice = new Party();
+
+        TransferResponse first = idempotentTransferService.transfer(alice.request(), alice.id(), key);
+        TransferResponse retry = idempotentTransferService.transfer(alice.request(), alice.id(), key);
+
+        assertEquals(first.id(), retry.id());
+        alice.assertMoved(AMOUNT);
+        assertThrows(AlreadyExistsException.class, () -> idempotentTransferService.transfer(
+                new TransferRequest(alice.source.getId(), alice.target.getId(), BigDecimal.ONE, null), alice.id(), key));
+    }
+
+    @Test
+    void usersPickingTheSameKeyEachGetTheirOwnTransfer() {
+        Party alice = new Party();
+        Party bob = new Party();
+
+        TransferResponse alices = idempotentTransferService.transfer(alice.request(), alice.id(), key);
+        TransferResponse bobs = idempotentTransferService.transfer(bob.request(), bob.id(), key);
+
+        assertNotEquals(alices.id(), bobs.id());
+        assertEquals(bob.source.getAccountNumber(), bobs.fromAccountNumber());
+        alice.assertMoved(AMOUNT);
+        bob.assertMoved(AMOUNT);
+    }
+
+    @Test
+    void anotherNodeScopesStoredKeysByUserToo() {
+        Party alice = new Party();
+        Party bob = new Party();
+        TransferResponse alices = idempotentTransferService.transfer(alice.request(), alice.id(), key);
+
+        // a node whose cache never saw the key: the stored row and the unique constraint decide
+        IdempotentTransferService otherNode = new IdempotentTransferService(transferService, transactionRepository,
+                new SimpleMeterRegistry(), 100, Duration.ofHours(1));
+        TransferResponse bobs = otherNode.transfer(bob.request(), bob.id(), key);
+        TransferResponse alicesRetry = otherNode.transfer(alice.request(), alice.id(), key);
+
+        assertNotEquals(alices.id(), bobs.id());
+        assertEquals(alices.id(), alicesRetry.id());
+        alice.assertMoved(AMOUNT);
+        bob.assertMoved(AMOUNT);
+    }
+
+    /** A user with a funded source account and an empty target account. */
+    private final class Party {
+
+        private final User owner = testAccounts.newUser();
+        private final BankAccount source = testAccounts.newAccount(owner, OPENING_BALANCE);
+        private final BankAccount target = testAccounts.newAccount(owner);
+
+        Long id() {
+            return owner.getId();
+        }
+
+        TransferRequest request() {
+            return new TransferRequest(source.getId(), target.getId(), AMOUNT, null);
+        }
+
+        void assertMoved(BigDecimal amount) {
+            assertEquals(0, OPENING_BALANCE.subtract(amount).compareTo(testAccounts.balanceOf(source)));
+            assertEquals(0, amount.compareTo(testAccounts.balanceOf(target)));
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.ReportPeriod;
+import com.example.demo.dto.ReportResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ReportCacheTest {
+
+    private static final Long ACCOUNT_ID = 1L;
+
+    private static final Duration TTL = Duration.ofHours(1);
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final ReportCache cache = new ReportCache(new SimpleMeterRegistry(), 100, TTL, nanos::get);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void reloadedOpenReportIsInvalidatedByTheNextCommit() {
+        ReportRange thisMonth = ReportRange.resolve(ReportPeriod.MONTHLY, null, null, LocalDate.now());
+
+        assertEquals(1, get(thisMonth).transactionCount());
+        cache.onTransferCommitted(new TransferCommittedEvent(Set.of(ACCOUNT_ID)));
+        assertEquals(2, get(thisMonth).transactionCount());
+        cache.onTransferCommitted(new TransferCommittedEvent(Set.of(ACCOUNT_ID)));
+
+        assertEquals(3, get(thisMonth).transactionCount());
+        assertEquals(3, get(thisMonth).transactionCount());
+    }
+
+    @Test
+    void closedReportSurvivesCommits() {
+        ReportRange lastYear = ReportRange.resolve(ReportPeriod.MONTHLY, null, null, LocalDate.now().minusYears(1));
+
+        assertEquals(1, get(lastYear).transactionCount());
+        cache.onTransferCommitted(new TransferCommittedEvent(Set.of(ACCOUNT_ID)));
+        nanos.addAndGet(TTL.multipliedBy(10).toNanos());
+
+        assertEquals(1, get(lastYear).transactionCount());
+    }
+
+    @Test
+    void justEndedReportStillExpires() {
+        LocalDateTime now = LocalDateTime.now();
+        ReportRange justEnded = ReportRange.resolve(ReportPeriod.CUSTOM, now.minusHours(1), now.minusSeconds(1),
+                now.toLocalDate());
+
+        assertEquals(1, get(justEnded).transactionCount());
+        nanos.addAndGet(TTL.toNanos() + 1);
+
+        assertEquals(2, get(justEnded).transactionCount());
+    }
+
+    @Test
+    void justEndedReportIsInvalidatedByTheNextCommit() {
+        LocalDateTime now = LocalDateTime.now();
+        ReportRange justEnded = ReportRange.resolve(ReportPeriod.CUSTOM, now.minusHours(1), now.minusSeconds(1),
+                now.toLocalDate());
+
+        assertEquals(1, get(justEnded).transactionCount());
+        // a transfer stamped before the end that committed after it
+        cache.onTransferCommitted(new TransferCommittedEvent(Set.of(ACCOUNT_ID)));
+
+        assertEquals(2, get(justEnded).transactionCount());
+    }
+
+    // each load reports how many loads came before it, so a stale entry shows up as an old count
+    private ReportResponse get(ReportRange range) {
+        Supplier<ReportResponse> loader = () -> new ReportResponse(ACCOUNT_ID, range.period(), range.start(),
+                range.end(), BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, loads.incrementAndGet(),
+                BigDecimal.ZERO);
+        return cache.get(ACCOUNT_ID, range, loader);
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.ReportJobResponse;
+import com.example.demo.dto.ReportPeriod;
+import com.example.demo.dto.ReportResponse;
+import com.example.demo.exception.NotFoundException;
+import com.example.demo.exception.TooManyRequestsException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReportJobServiceTest {
+
+    private static final Long OWNER = 1L;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private ReportJobService jobs;
+
+    @BeforeEach
+    void setUp() {
+        ReportService reportService = mock(ReportService.class);
+        when(reportService.report(any(Long.class), any(ReportRange.class))).thenAnswer(invocation -> {
+            assertTrue(release.await(10, TimeUnit.SECONDS));
+            ReportRange range = invocation.getArgument(1);
+            return new ReportResponse(invocation.getArgument(0), range.period(), range.start(), range.end(),
+                    BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, 0, BigDecimal.ZERO);
+        });
+        // one worker and one queue slot: the third distinct job is rejected
+        jobs = new ReportJobService(reportService, 1, 1, Duration.ofMinutes(10), 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        jobs.shutdown();
+    }
+
+    @Test
+    void duplicateSubmitGetsThePendingJobsId() {
+        ReportJobResponse first = submit(10L);
+        ReportJobResponse duplicate = submit(10L);
+
+        assertEquals(first.jobId(), duplicate.jobId());
+        assertEquals(first.jobId(), jobs.get(OWNER, duplicate.jobId()).jobId());
+        assertThrows(NotFoundException.class, () -> jobs.get(2L, first.jobId()));
+    }
+
+    @Test
+    void rejectedSubmitLeavesNothingBehindToDeduplicateAgainst() throws InterruptedException {
+        ReportJobResponse running = submit(10L);
+        submit(11L);
+        assertThrows(TooManyRequestsException.class, () -> submit(12L));
+
+        release.countDown();
+        awaitDone(running.jobId());
+        ReportJobResponse retried = submitWhenQueueHasRoom(12L);
+        assertNotEquals(running.jobId(), retried.jobId());
+        assertEquals("DONE", awaitDone(retried.jobId()).status());
+    }
+
+    private ReportJobResponse submit(Long accountId) {
+        return jobs.submit(OWNER, accountId, ReportPeriod.MONTHLY, null, null);
+    }
+
+    private ReportJobResponse submitWhenQueueHasRoom(Long accountId) throws InterruptedException {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return submit(accountId);
+            } catch (TooManyRequestsException e) {
+                if (attempt == 100) {
+                    throw e;
+                }
+                Thread.sleep(50);
+            }
+        }
+    }
+
+    private ReportJobResponse awaitDone(String jobId) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        ReportJobResponse job = jobs.get(OWNER, jobId);
+        while (!job.status().equals("DONE") && !job.status().equals("FAILED") && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            job = jobs.get(OWNER, jobId);
+        }
+        return job;
+    }
+}
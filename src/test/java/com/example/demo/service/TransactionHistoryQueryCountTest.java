@@ -0,0 +1,120 @@
+package com.example.demo.service;
+
+import com.example.demo.TestAccounts;
+import com.example.demo.dto.TransactionPage;
+import com.example.demo.model.BankAccount;
+import com.example.demo.model.Transaction;
+import com.example.demo.model.TransactionStatus;
+import com.example.demo.model.User;
+import com.example.demo.repository.BankAccountRepository;
+import com.example.demo.repository.TransactionFilter;
+import com.example.demo.repository.TransactionRepository;
+import com.example.demo.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Rendering a history page must not touch bank_accounts per row: the statement count is fixed
+ * by the direction filter, not by the page size or the number of distinct counterparties.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:history-query-count",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class TransactionHistoryQueryCountTest {
+
+    private static final int COUNTERPARTIES = 12;
+    private static final int TRANSACTIONS = 60;
+    private static final int PAGE_SIZE = 25;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BankAccountRepository bankAccountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private BankAccount account;
+
+    @BeforeEach
+    void seedHistory() {
+        TestAccounts testAccounts = new TestAccounts(userRepository, bankAccountRepository);
+        User owner = testAccounts.newUser();
+        account = testAccounts.newAccount(owner);
+        List<BankAccount> counterparties = new ArrayList<>();
+        for (int i = 0; i < COUNTERPARTIES; i++) {
+            counterparties.add(testAccounts.newAccount(owner));
+        }
+
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            BankAccount other = counterparties.get(i % COUNTERPARTIES);
+            boolean outgoing = i % 2 == 0;
+            Transaction tx = new Transaction();
+            tx.setFromAccount(outgoing ? account : other);
+            tx.setToAccount(outgoing ? other : account);
+            tx.setAmount(new BigDecimal("1.00"));
+            tx.setCurrency("USD");
+            tx.setStatus(TransactionStatus.COMPLETED);
+            transactions.add(tx);
+        }
+        transactionRepository.saveAll(transactions);
+    }
+
+    @Test
+    void allDirectionsPageCostsTwoStatementsRegardlessOfPageSize() {
+        Statistics stats = statistics();
+
+        TransactionPage first = transactionService.getHistory(account.getId(), filter(null), null, PAGE_SIZE);
+        assertEquals(PAGE_SIZE, first.items().size());
+        assertEquals(2, stats.getPrepareStatementCount(), "sent + received range scans only");
+        assertNotNull(first.nextCursor());
+
+        stats.clear();
+        TransactionPage second = transactionService.getHistory(
+                account.getId(), filter(null), first.nextCursor(), PAGE_SIZE);
+        assertEquals(PAGE_SIZE, second.items().size());
+        assertEquals(2, stats.getPrepareStatementCount());
+    }
+
+    @Test
+    void singleDirectionPageCostsOneStatement() {
+        Statistics stats = statistics();
+
+        TransactionPage incoming = transactionService.getHistory(account.getId(), filter("IN"), null, PAGE_SIZE);
+        assertEquals(PAGE_SIZE, incoming.items().size());
+        incoming.items().forEach(item -> assertEquals("IN", item.direction()));
+        assertEquals(1, stats.getPrepareStatementCount());
+    }
+
+    private Statistics statistics() {
+        Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+        return stats;
+    }
+
+    private static TransactionFilter filter(String direction) {
+        return new TransactionFilter(null, null, TransactionFilter.Direction.parse(direction), null, null);
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.demo.service;
+
+import com.example.demo.TestAccounts;
+import com.example.demo.dto.TransferBatchResponse;
+import com.example.demo.dto.TransferRequest;
+import com.example.demo.model.BankAccount;
+import com.example.demo.model.DailyAccountSummary;
+import com.example.demo.model.DailyAccountSummaryId;
+import com.example.demo.model.User;
+import com.example.demo.repository.BankAccountRepository;
+import com.example.demo.repository.DailyAccountSummaryRepository;
+import com.example.demo.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:transfer-batch",
+        "spring.jpa.show-sql=false"
+})
+class TransferServiceBatchTest {
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @SpyBean
+    private BankAccountRepository bankAccountRepository;
+
+    @SpyBean
+    private DailyAccountSummaryRepository summaryRepository;
+
+    private TestAccounts testAccounts;
+    private User owner;
+
+    @BeforeEach
+    void setUp() {
+        testAccounts = new TestAccounts(userRepository, bankAccountRepository);
+        owner = testAccounts.newUser();
+    }
+
+    @Test
+    void itemsAreCheckedInOrderAgainstTheRunningBalance() {
+        BankAccount source = testAccounts.newAccount(owner, new BigDecimal("100.00"));
+        BankAccount target = testAccounts.newAccount(owner);
+
+        TransferBatchResponse response = transferService.transferBatch(List.of(
+                request(source, target, "60.00"),
+                request(source, target, "60.00"),
+                request(source, target, "40.00")), owner.getId());
+
+        assertEquals(2, response.completed());
+        assertEquals(1, response.failed());
+        assertEquals(List.of("COMPLETED", "FAILED", "COMPLETED"), statuses(response));
+        assertEquals("Insufficient funds", response.results().get(1).error());
+        assertEquals(0, BigDecimal.ZERO.compareTo(testAccounts.balanceOf(source)));
+        assertEquals(0, new BigDecimal("100.00").compareTo(testAccounts.balanceOf(target)));
+    }
+
+    @Test
+    void invalidItemsFailOnTheirOwn() {
+        BankAccount source = testAccounts.newAccount(owner, new BigDecimal("100.00"));
+        BankAccount target = testAccounts.newAccount(owner);
+        BankAccount euros = testAccounts.newAccount(owner, BigDecimal.ZERO, "EUR");
+        BankAccount someoneElses = testAccounts.newAccount(testAccounts.newUser(), new BigDecimal("100.00"));
+
+        TransferBatchResponse response = transferService.transferBatch(List.of(
+                request(source, source, "1.00"),
+                new TransferRequest(source.getId(), Long.MAX_VALUE, new BigDecimal("1.00"), null),
+                request(someoneElses, target, "1.00"),
+                request(source, euros, "1.00"),
+                request(source, target, "10.00")), owner.getId());
+
+        assertEquals(1, response.completed());
+        assertEquals(4, response.failed());
+        assertEquals("Cannot transfer to the same account", response.results().get(0).error());
+        assertEquals("Account not found", response.results().get(1).error());
+        assertEquals("You do not own the source account", response.results().get(2).error());
+        assertEquals("Currency mismatch: USD vs EUR", response.results().get(3).error());
+
+        TransferBatchResponse.Item completed = response.results().get(4);
+        assertEquals(4, completed.index());
+        assertEquals("COMPLETED", completed.status());
+        assertNull(completed.error());
+        assertEquals(source.getAccountNumber(), completed.transfer().fromAccountNumber());
+        assertEquals(target.getAccountNumber(), completed.transfer().toAccountNumber());
+
+        assertEquals(0, new BigDecimal("90.00").compareTo(testAccounts.balanceOf(source)));
+        assertEquals(0, new BigDecimal("100.00").compareTo(testAccounts.balanceOf(someoneElses)));
+        assertEquals(0, BigDecimal.ZERO.compareTo(testAccounts.balanceOf(euros)));
+    }
+
+    @Test
+    void moneyIsConservedAcrossABatch() {
+        List<BankAccount> accounts = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            accounts.add(testAccounts.newAccount(owner, new BigDecimal("50.00")));
+        }
+        List<TransferRequest> requests = new ArrayList<>();
+        // round and round the ring with growing amounts, so later items start failing on funds
+        for (int i = 0; i < 64; i++) {
+            BankAccount from = accounts.get(i % accounts.size());
+            BankAccount to = accounts.get((i + 3) % accounts.size());
+            requests.add(request(from, to, (i + 1) + ".00"));
+        }
+
+        TransferBatchResponse response = transferService.transferBatch(requests, owner.getId());
+
+        assertEquals(requests.size(), response.completed() + response.failed());
+        BigDecimal total = BigDecimal.ZERO;
+        for (BankAccount account : accounts) {
+            BigDecimal balance = testAccounts.balanceOf(account);
+            assertTrue(balance.signum() >= 0, "overdrawn: " + balance);
+            total = total.add(balance);
+        }
+        assertEquals(0, new BigDecimal("400.00").compareTo(total), "money created or destroyed: " + total);
+    }
+
+    @Test
+    void moreAccountsThanOneLockChunkAreLockedInChunks() {
+        List<TransferRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 550; i++) {
+            requests.add(request(testAccounts.newAccount(owner, new BigDecimal("10.00")),
+                    testAccounts.newAccount(owner), "10.00"));
+        }
+        clearInvocations(bankAccountRepository);
+
+        TransferBatchResponse response = transferService.transferBatch(requests, owner.getId());
+
+        assertEquals(550, response.completed());
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<Long>> chunks = ArgumentCaptor.forClass(Collection.class);
+        verify(bankAccountRepository, times(2)).lockAllByIdOrdered(chunks.capture());
+        assertEquals(List.of(1_000, 100), chunks.getAllValues().stream().map(Collection::size).toList());
+    }
+
+    @Test
+    void summariesGetOneUpsertPerAccountAndDay() {
+        BankAccount a = testAccounts.newAccount(owner, new BigDecimal("100.00"));
+        BankAccount b = testAccounts.newAccount(owner, new BigDecimal("100.00"));
+        BankAccount c = testAccounts.newAccount(owner);
+        clearInvocations(summaryRepository);
+
+        TransferBatchResponse response = transferService.transferBatch(List.of(
+                request(a, b, "10.00"),
+                request(a, b, "20.00"),
+                request(a, b, "30.00"),
+                request(b, c, "5.00")), owner.getId());
+
+        // three accounts on one day, however many transfers touch each of them
+        verify(summaryRepository, times(3)).addToDay(any(), any(), any(), anyLong(), any(), anyLong(), any());
+        verify(summaryRepository, times(3)).insertDay(any(), any(), any(), anyLong(), any(), anyLong(), any());
+
+        LocalDate day = response.results().get(0).transfer().createdAt().toLocalDate();
+        DailyAccountSummary summary = summaryRepository.findById(new DailyAccountSummaryId(b.getId(), day)).orElseThrow();
+        assertEquals(3, summary.getReceivedCount());
+        assertEquals(0, new BigDecimal("60.00").compareTo(summary.getTotalReceived()));
+        assertEquals(1, summary.getSentCount());
+        assertEquals(0, new BigDecimal("5.00").compareTo(summary.getTotalSent()));
+        assertEquals(0, new BigDecimal("30.00").compareTo(summary.getLargestAmount()));
+    }
+
+    private static TransferRequest request(BankAccount from, BankAccount to, String amount) {
+        return new TransferRequest(from.getId(), to.getId(), new BigDecimal(amount), null);
+    }
+
+    private static List<String> statuses(TransferBatchResponse response) {
+        return response.results().stream().map(TransferBatchResponse.Item::status).toList();
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.demo.service;
+
+import com.example.demo.TestAccounts;
+import com.example.demo.dto.TransferRequest;
+import com.example.demo.exception.InsufficientFundsException;
+import com.example.demo.model.BankAccount;
+import com.example.demo.model.User;
+import com.example.demo.repository.BankAccountRepository;
+import com.example.demo.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:transfer-concurrency;LOCK_TIMEOUT=10000",
+        "spring.jpa.show-sql=false"
+})
+class TransferServiceConcurrencyTest {
+
+    private static final int THREADS = 64;
+    private static final int TRANSFERS_PER_THREAD = 20;
+    private static final BigDecimal AMOUNT = new BigDecimal("7.00");
+    private static final BigDecimal SOURCE_BALANCE = new BigDecimal("1000.00");
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BankAccountRepository bankAccountRepository;
+
+    private TestAccounts testAccounts;
+
+    @BeforeEach
+    void setUp() {
+        testAccounts = new TestAccounts(userRepository, bankAccountRepository);
+    }
+
+    @Test
+    void moneyIsConservedWhenManyTransfersDrainTheSameSource() throws InterruptedException {
+        User owner = testAccounts.newUser();
+        BankAccount source = testAccounts.newAccount(owner, SOURCE_BALANCE);
+        List<BankAccount> targets = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            targets.add(testAccounts.newAccount(owner));
+        }
+
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        List<Throwable> unexpected = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch startGate = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                BankAccount target = targets.get(t % targets.size());
+                executor.submit(() -> {
+                    startGate.await();
+                    for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                        try {
+                            transferService.transfer(
+                                    new TransferRequest(source.getId(), target.getId(), AMOUNT, null),
+                                    owner.getId());
+                            completed.incrementAndGet();
+                        } catch (InsufficientFundsException e) {
+                            rejected.incrementAndGet();
+                        } catch (RuntimeException e) {
+                            unexpected.add(e);
+                        }
+                    }
+                    return null;
+                });
+            }
+            startGate.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertTrue(unexpected.isEmpty(), "unexpected failures: " + unexpected);
+        assertEquals(THREADS * TRANSFERS_PER_THREAD, completed.get() + rejected.get());
+
+        // 1000.00 / 7.00 -> exactly 142 transfers fit; every other attempt must be rejected
+        int expectedCompleted = SOURCE_BALANCE.divideToIntegralValue(AMOUNT).intValueExact();
+        assertEquals(expectedCompleted, completed.get());
+
+        BigDecimal sourceBalance = testAccounts.balanceOf(source);
+        BigDecimal targetsBalance = targets.stream().map(testAccounts::balanceOf).reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertTrue(sourceBalance.signum() >= 0, "source overdrawn: " + sourceBalance);
+        assertEquals(0, SOURCE_BALANCE.compareTo(sourceBalance.add(targetsBalance)),
+                "money created or destroyed: " + sourceBalance + " + " + targetsBalance);
+    }
+}